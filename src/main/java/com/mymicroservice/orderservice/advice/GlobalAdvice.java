@@ -1,14 +1,23 @@
 package com.mymicroservice.orderservice.advice;
 
 import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+import com.mymicroservice.orderservice.exception.InvalidCursorException;
+import com.mymicroservice.orderservice.exception.InvalidStatusTransitionException;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderAlreadyPaidException;
 import com.mymicroservice.orderservice.exception.OrderItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
+import com.mymicroservice.orderservice.exception.TooManySubscribersException;
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
 import com.mymicroservice.orderservice.util.ErrorItem;
 import feign.FeignException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -172,6 +181,111 @@ public class GlobalAdvice {
         return ResponseEntity.status(error.getStatusCode()).body(error);
     }
 
+    /**
+     * Handles {@link InvalidStatusTransitionException} thrown when an update would move an order
+     * to a status the transition table doesn't allow from its current one.
+     *
+     * @param e the thrown {@link InvalidStatusTransitionException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 409 (Conflict) status
+     */
+    @ExceptionHandler({InvalidStatusTransitionException.class})
+    public ResponseEntity<ErrorItem> handleInvalidStatusTransitionException(InvalidStatusTransitionException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.CONFLICT);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link VersionMismatchException} thrown when the {@code If-Match} header of an update
+     * doesn't match the current version of the order or item.
+     *
+     * @param e the thrown {@link VersionMismatchException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 412 (Precondition Failed) status
+     */
+    @ExceptionHandler({VersionMismatchException.class})
+    public ResponseEntity<ErrorItem> handleVersionMismatchException(VersionMismatchException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.PRECONDITION_FAILED);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link OptimisticLockingFailureException} and {@link OptimisticLockException} thrown when
+     * the order or item was updated concurrently between reading it and writing the change.
+     * <p>
+     * Services flush through the shared {@code EntityManager}, which is not subject to repository
+     * exception translation, so a conflict caught at flush arrives as the untranslated JPA exception.
+     *
+     * @param e the thrown {@link OptimisticLockingFailureException} or {@link OptimisticLockException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 409 (Conflict) status
+     */
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<ErrorItem> handleOptimisticLockingFailureException(RuntimeException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.CONFLICT);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link InvalidCursorException} thrown when the {@code after} cursor of a keyset
+     * pagination request wasn't issued by this service.
+     *
+     * @param e the thrown {@link InvalidCursorException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 400 (Bad Request) status
+     */
+    @ExceptionHandler({InvalidCursorException.class})
+    public ResponseEntity<ErrorItem> handleInvalidCursorException(InvalidCursorException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.BAD_REQUEST);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link DeadlineExceededException} thrown when calls made concurrently for one request
+     * (e.g. the user lookup of createOrder) didn't complete within the request deadline.
+     *
+     * @param e the thrown {@link DeadlineExceededException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 504 (Gateway Timeout) status
+     */
+    @ExceptionHandler({DeadlineExceededException.class})
+    public ResponseEntity<ErrorItem> handleDeadlineExceededException(DeadlineExceededException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.GATEWAY_TIMEOUT);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link UserServiceUnavailableException} thrown when userservice is needed to complete
+     * the request (e.g. createOrder) but the circuit breaker is open, the bulkhead is full
+     * or the call failed with a timeout or a 5xx response.
+     *
+     * @param e the thrown {@link UserServiceUnavailableException}
+     * @return a {@link ResponseEntity} containing an {@link ErrorItem} with
+     *         details of the error and HTTP 503 (Service Unavailable) status
+     */
+    @ExceptionHandler({UserServiceUnavailableException.class})
+    public ResponseEntity<ErrorItem> handleUserServiceUnavailableException(UserServiceUnavailableException e) {
+        ErrorItem error = ErrorItem.generateMessage(e, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(error.getStatusCode()).body(error);
+    }
+
+    /**
+     * Handles {@link TooManySubscribersException} thrown when this instance already serves
+     * the maximum number of status streams.
+     * <p>
+     * The response has no body: clients of the streams accept only {@code text/event-stream},
+     * so an {@link ErrorItem} couldn't be written. {@code Retry-After} spreads their reconnects.
+     *
+     * @param e the thrown {@link TooManySubscribersException}
+     * @return an empty {@link ResponseEntity} with HTTP 503 (Service Unavailable) status
+     */
+    @ExceptionHandler({TooManySubscribersException.class})
+    public ResponseEntity<Void> handleTooManySubscribersException(TooManySubscribersException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build();
+    }
+
     /**
      * Handles Feign client exceptions when calling external services.
      * Extracts custom error message from response body if available.
@@ -7,6 +7,9 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+import java.util.Set;
+
 @FeignClient(name = "userservice", url = "${user-service.url}", configuration = FeignConfig.class)
 public interface UserClient {
 
@@ -16,4 +19,16 @@ public interface UserClient {
     @GetMapping("/api/internal/users/{id}")  // mapping to endpoint of userservice "getUserById()"
     UserDto getUserById(@PathVariable("id") Long id);
 
+    /**
+     * Resolves several users with a single round trip.
+     * <p>
+     * Users that don't exist are simply absent from the result. Older userservice
+     * deployments don't expose this endpoint and answer with 404/405/501.
+     *
+     * @param ids set of user IDs to resolve
+     * @return users found for the given IDs (may be empty)
+     */
+    @GetMapping("/api/internal/users/find-by-ids")  // mapping to endpoint of userservice "getUsersIdIn()"
+    List<UserDto> getUsersByIds(@RequestParam("ids") Set<Long> ids);
+
 }
@@ -0,0 +1,82 @@
+package com.mymicroservice.orderservice.client;
+
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import feign.FeignException;
+import feign.RetryableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer around calls to userservice through {@link UserClient}.
+ * <p>
+ * A semaphore bulkhead caps the number of calls in flight, and a circuit breaker opens on
+ * a high error or slow-call rate (both configured under {@code resilience4j.*.instances.userservice}).
+ * Rejected calls and calls that failed because userservice is unavailable (timeouts, 5xx) are translated into
+ * {@link UserServiceUnavailableException}, so callers can degrade; 4xx answers such as an unknown user
+ * and 501 (an endpoint this version of userservice doesn't implement) are ignored by the breaker
+ * and propagate unchanged, so callers can fall back to another endpoint.
+ * <p>
+ * Breaker calls, state and bulkhead saturation are published by resilience4j as {@code resilience4j.*} metrics;
+ * state transitions and rejections are counted as {@value #TRANSITIONS_METRIC} and {@value #REJECTED_METRIC}.
+ */
+@Slf4j
+@Component
+public class UserServiceGuard {
+
+    public static final String INSTANCE = "userservice";
+    public static final String TRANSITIONS_METRIC = "user.service.breaker.transitions";
+    public static final String REJECTED_METRIC = "user.service.calls.rejected";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Counter rejectedByBreaker;
+    private final Counter rejectedByBulkhead;
+
+    public UserServiceGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                            MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+        this.rejectedByBreaker = Counter.builder(REJECTED_METRIC).tag("reason", "circuit-open").register(meterRegistry);
+        this.rejectedByBulkhead = Counter.builder(REJECTED_METRIC).tag("reason", "bulkhead-full").register(meterRegistry);
+
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Circuit breaker of userservice: {}", event.getStateTransition());
+            Counter.builder(TRANSITIONS_METRIC)
+                    .tag("from", event.getStateTransition().getFromState().name())
+                    .tag("to", event.getStateTransition().getToState().name())
+                    .register(meterRegistry)
+                    .increment();
+        });
+    }
+
+    /**
+     * Runs the call to userservice inside the bulkhead and the circuit breaker.
+     *
+     * @throws UserServiceUnavailableException if the call was rejected or userservice didn't answer properly
+     */
+    public <T> T call(Supplier<T> remoteCall) {
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, remoteCall)).get();
+        } catch (CallNotPermittedException e) {
+            rejectedByBreaker.increment();
+            throw new UserServiceUnavailableException("Circuit breaker of userservice is open", e);
+        } catch (BulkheadFullException e) {
+            rejectedByBulkhead.increment();
+            throw new UserServiceUnavailableException("Too many concurrent calls to userservice", e);
+        } catch (FeignException.NotImplemented e) {
+            throw e; // not an outage: the endpoint is missing, see UserLookupServiceImpl's batch fallback
+        } catch (RetryableException | FeignException.FeignServerException e) {
+            throw new UserServiceUnavailableException("userservice is unavailable: " + e.getMessage(), e);
+        }
+    }
+}
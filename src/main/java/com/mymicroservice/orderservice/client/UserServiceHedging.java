@@ -0,0 +1,239 @@
+package com.mymicroservice.orderservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for idempotent GETs of {@link UserClient}: if the first attempt hasn't returned
+ * after the hedge delay, a second identical attempt is sent and whichever succeeds first is used.
+ * The slower attempt is left to finish (bounded by the read timeout) and its result is dropped.
+ * <p>
+ * The hedge delay is the {@code percentile} of the latency of recent attempts (a sliding window of about
+ * a minute), but not less than {@code min-delay}; no hedges are sent until {@value #MIN_SAMPLES} attempts
+ * were measured. A budget caps the extra load: every call earns {@code budget} of a hedge
+ * (0.05 = at most 5% extra requests), a hedge is only sent while at least one whole hedge is earned.
+ * <p>
+ * Metrics: {@value #CALLS_METRIC} (hedgeable calls), {@value #HEDGES_METRIC} with {@code result=won|lost}
+ * (hedges sent and whether they answered first), {@value #BUDGET_EXHAUSTED_METRIC}, the current
+ * {@value #DELAY_METRIC} and the attempt latency {@value #LATENCY_METRIC}.
+ */
+@Component
+public class UserServiceHedging {
+
+    public static final String CALLS_METRIC = "user.service.hedge.calls";
+    public static final String HEDGES_METRIC = "user.service.hedges";
+    public static final String BUDGET_EXHAUSTED_METRIC = "user.service.hedge.budget.exhausted";
+    public static final String DELAY_METRIC = "user.service.hedge.delay";
+    public static final String LATENCY_METRIC = "user.service.hedge.attempt.latency";
+
+    static final int MIN_SAMPLES = 100;
+
+    /** Budget in thousandths of a hedge, so deposits of a fraction of a hedge stay integral. */
+    private static final long HEDGE_COST = 1000;
+    private static final long MAX_SAVED_HEDGES = 10;
+    private static final long DELAY_RECOMPUTE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Executor executor;
+    private final boolean enabled;
+    private final Duration minDelay;
+    private final long depositPerCall;
+
+    private final Timer attemptLatency;
+    private final Counter calls;
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+    private final Counter budgetExhausted;
+
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long delayNanos;
+    private volatile long delayComputedAt;
+
+    public UserServiceHedging(@Qualifier("userHedgingExecutor") Executor executor,
+                              MeterRegistry meterRegistry,
+                              @Value("${user-service.hedging.enabled:false}") boolean enabled,
+                              @Value("${user-service.hedging.percentile:0.95}") double percentile,
+                              @Value("${user-service.hedging.min-delay:50ms}") Duration minDelay,
+                              @Value("${user-service.hedging.budget:0.05}") double budget) {
+        this.executor = executor;
+        this.enabled = enabled;
+        this.minDelay = minDelay;
+        this.depositPerCall = Math.round(budget * HEDGE_COST);
+        this.delayNanos = Long.MAX_VALUE;
+
+        this.attemptLatency = Timer.builder(LATENCY_METRIC)
+                .description("Latency of single attempts of hedgeable calls to userservice")
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.calls = Counter.builder(CALLS_METRIC)
+                .description("Hedgeable calls to userservice")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder(HEDGES_METRIC).tag("result", "won")
+                .description("Hedges sent to userservice that answered before the first attempt")
+                .register(meterRegistry);
+        this.hedgesLost = Counter.builder(HEDGES_METRIC).tag("result", "lost")
+                .description("Hedges sent to userservice that didn't answer first")
+                .register(meterRegistry);
+        this.budgetExhausted = Counter.builder(BUDGET_EXHAUSTED_METRIC)
+                .description("Hedges not sent because the hedge budget was used up")
+                .register(meterRegistry);
+        Gauge.builder(DELAY_METRIC, () -> delayNanos == Long.MAX_VALUE ? Double.NaN : delayNanos / 1e6)
+                .description("Current hedge delay (NaN while there are too few samples to hedge)")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs an idempotent call with a hedge. Without hedging enabled the call simply runs on the calling thread.
+     *
+     * @return the result of the first attempt that succeeded
+     * @throws RuntimeException the failure of the first attempt if no attempt succeeded, unwrapped
+     */
+    public <T> T call(Supplier<T> attempt) {
+        if (!enabled) {
+            return attempt.get();
+        }
+        calls.increment();
+        budget.getAndUpdate(saved -> Math.min(saved + depositPerCall, MAX_SAVED_HEDGES * HEDGE_COST));
+
+        CompletableFuture<T> first;
+        try {
+            first = CompletableFuture.supplyAsync(timed(attempt), executor);
+        } catch (RejectedExecutionException e) {
+            return attempt.get(); // executor saturated: no hedging for this call
+        }
+        long delay = hedgeDelayNanos();
+        try {
+            return first.get(delay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return hedge(first, attempt);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for userservice", e);
+        }
+    }
+
+    private <T> T hedge(CompletableFuture<T> first, Supplier<T> attempt) {
+        if (!withdrawHedge()) {
+            budgetExhausted.increment();
+            return join(first);
+        }
+        CompletableFuture<T> second;
+        try {
+            second = CompletableFuture.supplyAsync(timed(attempt), executor);
+        } catch (RejectedExecutionException e) {
+            budget.addAndGet(HEDGE_COST);
+            return join(first);
+        }
+
+        CompletableFuture<Boolean> secondWon = new CompletableFuture<>();
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        first.whenComplete((value, error) -> {
+            if (error == null) {
+                secondWon.complete(false);
+                winner.complete(value);
+            } else if (failed.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        second.whenComplete((value, error) -> {
+            if (error == null) {
+                secondWon.complete(true);
+                winner.complete(value);
+            } else if (failed.incrementAndGet() == 2) {
+                winner.completeExceptionally(first.isCompletedExceptionally() ? first.exceptionNow() : error);
+            }
+        });
+
+        try {
+            return join(winner);
+        } finally {
+            if (secondWon.getNow(false)) {
+                hedgesWon.increment();
+            } else {
+                hedgesLost.increment();
+            }
+        }
+    }
+
+    /**
+     * Percentile of recent attempt latencies, recomputed at most once a second
+     * ({@code Long.MAX_VALUE}, i.e. no hedge, until enough attempts were measured).
+     */
+    private long hedgeDelayNanos() {
+        long now = System.nanoTime();
+        if (delayNanos == Long.MAX_VALUE || now - delayComputedAt > DELAY_RECOMPUTE_INTERVAL_NANOS) {
+            delayComputedAt = now;
+            if (samples.get() < MIN_SAMPLES) {
+                delayNanos = Long.MAX_VALUE;
+            } else {
+                ValueAtPercentile[] percentiles = attemptLatency.takeSnapshot().percentileValues();
+                double observed = percentiles.length > 0 ? percentiles[0].value(TimeUnit.NANOSECONDS) : 0;
+                delayNanos = Math.max(minDelay.toNanos(), (long) observed);
+            }
+        }
+        return delayNanos;
+    }
+
+    private boolean withdrawHedge() {
+        long saved;
+        do {
+            saved = budget.get();
+            if (saved < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(saved, saved - HEDGE_COST));
+        return true;
+    }
+
+    private <T> Supplier<T> timed(Supplier<T> attempt) {
+        return () -> {
+            long start = System.nanoTime();
+            T result = attempt.get();
+            attemptLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            samples.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        if (failure instanceof RuntimeException runtimeException) {
+            return runtimeException; // keep FeignException etc., so callers handle it as before
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mymicroservice.orderservice.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Properties;
+
+@Configuration
+public class BroadcastKafkaConfig {
+
+    public static final String BROADCAST_CONTAINER_FACTORY = "broadcastContainerFactory";
+
+    /**
+     * Container factory for listeners that every instance runs with a consumer group of its own
+     * to see all records of a topic (notifications, not work to share).
+     * <p>
+     * Such a consumer starts at the latest offset and never commits one: nothing is resumed after a restart,
+     * and a group without committed offsets leaves nothing behind once its only member is gone.
+     * Listeners take no {@code Acknowledgment}; with {@code MANUAL} ack mode the container commits nothing
+     * on its own. A record the listener fails on is logged and skipped.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> broadcastContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(new FixedBackOff(0L, 0L));
+        errorHandler.setAckAfterHandle(false);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mymicroservice.orderservice.config;
+
+import com.mymicroservice.orderservice.util.ConnectionHoldTimeDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceMetricsConfig {
+
+    /**
+     * Wraps the application DataSource, so connection hold time is published per endpoint
+     * as {@value ConnectionHoldTimeDataSource#METRIC_NAME}.
+     * Static, because post-processors are created before regular beans.
+     * Ordered, so it wraps the pool before the connection limiter of {@link ThreadingConfig}.
+     */
+    @Bean
+    public static BeanPostProcessor connectionHoldTimeDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OrderedBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionHoldTimeDataSource) {
+                    return bean;
+                }
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                return registry != null ? new ConnectionHoldTimeDataSource(dataSource, registry) : bean;
+            }
+        };
+    }
+
+    private interface OrderedBeanPostProcessor extends BeanPostProcessor, Ordered {
+
+        @Override
+        default int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mymicroservice.orderservice.config;
+
+import com.mymicroservice.orderservice.util.MdcTaskDecorator;
+import com.mymicroservice.orderservice.util.ScopedTaskFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class FanOutConfig {
+
+    /**
+     * Scopes for concurrent I/O of one request; all subtasks of a scope share the {@code deadline}.
+     */
+    @Bean
+    public ScopedTaskFactory scopedTaskFactory(@Qualifier("fanOutExecutor") AsyncTaskExecutor fanOutExecutor,
+                                               @Value("${order.fan-out.deadline:10s}") Duration deadline) {
+        return new ScopedTaskFactory(fanOutExecutor, deadline);
+    }
+
+    /**
+     * Executor for I/O that a request runs next to its own work (see {@code ScopedTasks}).
+     * Separate from {@code userLookupExecutor}, because forked lookups may fan out
+     * on that executor themselves and must not wait for their own pool.
+     * When the pool is saturated the subtask runs on the calling thread instead of queueing.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor fanOutExecutor(@Value("${order.fan-out.parallelism:32}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("fan-out-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Virtual-thread variant: a subtask is cheap, so every one gets its own thread.
+     */
+    @Bean("fanOutExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualFanOutExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fan-out-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mymicroservice.orderservice.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration.HttpClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Transport of the Feign clients: the pooled Apache HttpClient 5 created by Spring Cloud OpenFeign
+ * ({@code spring.cloud.openfeign.httpclient.*}) instead of a new {@code HttpURLConnection} per call.
+ * <p>
+ * Pool size, per-route limit and the pool lease timeout are set by properties; connect/read timeouts
+ * per client by {@code spring.cloud.openfeign.client.config.<client>.*}. Call latency is published
+ * as the {@code http.client.requests} histogram by the Micrometer capability of feign-micrometer.
+ */
+@Configuration
+public class FeignHttpClientConfig {
+
+    /**
+     * Closes connections idle for longer than {@code idle-eviction}, so a keep-alive connection
+     * dropped by userservice or a load balancer is not handed out again.
+     */
+    @Bean
+    public HttpClientBuilderCustomizer idleConnectionEvictionCustomizer(
+            @Value("${user-service.http.idle-eviction:30s}") Duration idleEviction) {
+        return builder -> builder.evictIdleConnections(TimeValue.ofMilliseconds(idleEviction.toMillis()));
+    }
+
+    /**
+     * Publishes leased/available/pending connections of the pool as {@code httpcomponents.httpclient.pool.*}
+     * (nothing is bound when the HttpClient 5 transport is disabled).
+     */
+    @Bean
+    public MeterBinder feignConnectionPoolMetrics(ObjectProvider<HttpClientConnectionManager> hc5ConnectionManager) {
+        return registry -> hc5ConnectionManager.ifAvailable(connectionManager -> {
+            if (connectionManager instanceof PoolingHttpClientConnectionManager pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder(pool, "feign").bindTo(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.mymicroservice.orderservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache: one JCache region (backed by Caffeine) per cached entity and collection,
+ * each bounded by {@code l2-cache.<region>.max-size} entries and {@code l2-cache.<region>.ttl} since the last write.
+ * <p>
+ * Entities and collections are cached {@code READ_WRITE}: changes made through the persistence context
+ * soft-lock their entries until the transaction completed, so a concurrent load can't put a stale copy.
+ * Bulk status transitions do the same per order (see {@code OrderRepositoryCustomImpl}).
+ * Regions are local to each instance: writes committed on another instance are evicted when their invalidation
+ * arrives (see {@code SecondLevelCacheEvictor}); the time to live bounds how long an entry is served stale when
+ * the invalidation is lost or a concurrent load put the old row back after it.
+ * Regions must be declared here, Hibernate fails at startup for a region it doesn't find.
+ * <p>
+ * With {@code hibernate.generate_statistics} enabled, hits, misses and puts per region are published
+ * as {@code hibernate.second.level.cache.*} and the hit ratio as {@value #HIT_RATIO_METRIC}.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String HIT_RATIO_METRIC = "hibernate.second.level.cache.hit.ratio";
+
+    static final List<String> REGIONS = List.of(Order.CACHE_REGION, Order.ORDER_ITEMS_CACHE_REGION,
+            OrderItem.CACHE_REGION, Item.CACHE_REGION);
+
+    /**
+     * Cache manager of the regions. Each application context gets a manager of its own,
+     * the default one of the provider is shared by all contexts of the JVM.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment environment) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-l2-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            long maxSize = environment.getProperty("l2-cache." + region + ".max-size", Long.class, 10_000L);
+            Duration ttl = environment.getProperty("l2-cache." + region + ".ttl", Duration.class, Duration.ofMinutes(1));
+            cacheManager.createCache(region, new CaffeineConfiguration<>()
+                    .setMaximumSize(OptionalLong.of(maxSize))
+                    .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                    // Hibernate caches disassembled, immutable entries: copying them on every get/put buys nothing
+                    .setStoreByValue(false)
+                    .setStatisticsEnabled(true));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Hit ratio of each region since startup ({@code NaN} before the first lookup or without statistics).
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : REGIONS) {
+                Gauge.builder(HIT_RATIO_METRIC, statistics, stats -> hitRatio(stats, region))
+                        .description("Share of second-level cache lookups served from the region")
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRatio(Statistics statistics, String region) {
+        if (!statistics.isStatisticsEnabled()) {
+            return Double.NaN;
+        }
+        CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+        long lookups = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / lookups;
+    }
+}
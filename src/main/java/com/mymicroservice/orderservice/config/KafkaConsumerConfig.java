@@ -0,0 +1,46 @@
+package com.mymicroservice.orderservice.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Properties;
+
+@Configuration
+@ConditionalOnProperty(name = "kafka.consumer.batch.enabled", havingValue = "true")
+public class KafkaConsumerConfig {
+
+    /**
+     * Container factory for batch listeners: the listener receives up to {@code max-poll-records}
+     * records per call and offsets are committed once per batch.
+     * <p>
+     * When the listener throws {@link org.springframework.kafka.listener.BatchListenerFailedException},
+     * offsets of the records before the failed one are committed and the rest of the batch is redelivered
+     * after 100 ms, the same back-off the single-record listener uses.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${kafka.consumer.batch.max-poll-records:500}") int maxPollRecords) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(100L, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+}
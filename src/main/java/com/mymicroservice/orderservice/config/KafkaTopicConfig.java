@@ -23,4 +23,20 @@ public class KafkaTopicConfig {
                 .replicas(1)
                 .build();
     }
+
+    @Bean
+    public NewTopic orderStatusChangesTopic() {
+        return TopicBuilder.name("order-status-changes")
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic cacheInvalidationsTopic() {
+        return TopicBuilder.name("cache-invalidations")
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
 }
@@ -0,0 +1,98 @@
+package com.mymicroservice.orderservice.config;
+
+import com.mymicroservice.orderservice.util.ConnectionLimitingDataSource;
+import com.mymicroservice.orderservice.util.MdcTaskDecorator;
+import com.mymicroservice.orderservice.util.VirtualThreadPinningMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Threading mode of the service, switched by {@code spring.threads.virtual.enabled}.
+ * <p>
+ * In virtual mode Spring Boot runs Tomcat requests, Kafka listener containers (including the batch factory,
+ * which is built by the same configurer) and {@code applicationTaskExecutor} on virtual threads;
+ * Feign calls are blocking and simply run on the calling virtual thread.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    public static final String DB_PERMITS_WAITING_METRIC = "db.connection.permits.waiting";
+
+    /**
+     * Picked up by the auto-configured {@code applicationTaskExecutor} (async MVC, NDJSON exports),
+     * so the request ID from {@code RequestIdFilter} follows the task in both modes.
+     */
+    @Bean
+    public MdcTaskDecorator mdcTaskDecorator() {
+        return new MdcTaskDecorator();
+    }
+
+    @Slf4j
+    @Configuration
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    static class VirtualThreadsConfig {
+
+        @Bean
+        public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+                MeterRegistry meterRegistry,
+                @Value("${virtual-threads.pinning.threshold:20ms}") Duration threshold) {
+            return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+        }
+
+        /**
+         * Caps the number of threads holding a connection to the Hikari pool size. Without the cap
+         * thousands of virtual threads would wait inside Hikari and time out there,
+         * turning thread starvation into connection starvation.
+         * <p>
+         * Not {@code Ordered}, so it runs after the ordered hold-time post-processor and becomes the outermost
+         * wrapper: time spent waiting for a permit is not counted as connection hold time.
+         */
+        @Bean
+        public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                        return bean;
+                    }
+                    HikariDataSource hikari = unwrapHikari(dataSource);
+                    if (hikari == null) {
+                        log.warn("DataSource '{}' is not backed by Hikari, DB concurrency is not limited", beanName);
+                        return bean;
+                    }
+                    ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(dataSource,
+                            hikari.getMaximumPoolSize(), Duration.ofMillis(hikari.getConnectionTimeout()));
+                    MeterRegistry registry = meterRegistry.getIfAvailable();
+                    if (registry != null) {
+                        Gauge.builder(DB_PERMITS_WAITING_METRIC, limited, ConnectionLimitingDataSource::getWaitingThreads)
+                                .description("Threads waiting for a DB connection permit")
+                                .register(registry);
+                    }
+                    log.info("DB concurrency limited to {} connections", limited.getMaxConcurrency());
+                    return limited;
+                }
+            };
+        }
+
+        private static HikariDataSource unwrapHikari(DataSource dataSource) {
+            try {
+                return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mymicroservice.orderservice.config;
+
+import com.mymicroservice.orderservice.util.MdcTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class UserLookupConfig {
+
+    /**
+     * Executor for parallel calls to userservice (fallback when the batch endpoint is unavailable).
+     * The pool is bounded, so a large list never opens more than {@code parallelism} connections at once.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor userLookupExecutor(
+            @Value("${user-service.lookup.parallelism:8}") int parallelism,
+            @Value("${user-service.lookup.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("user-lookup-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Virtual-thread variant: a thread per call instead of a pool, the concurrency limit keeps
+     * at most {@code parallelism} calls to userservice in flight.
+     */
+    @Bean("userLookupExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualUserLookupExecutor(@Value("${user-service.lookup.parallelism:8}") int parallelism) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("user-lookup-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(parallelism);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+
+    /**
+     * Executor for the attempts of hedged calls to userservice (see {@code UserServiceHedging}).
+     * It has no queue: when all threads are busy the call runs without a hedge on the calling thread.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor userHedgingExecutor(@Value("${user-service.hedging.parallelism:32}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("user-hedging-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Virtual-thread variant: every attempt gets its own thread.
+     */
+    @Bean("userHedgingExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualUserHedgingExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("user-hedging-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mymicroservice.orderservice.config;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Properties;
+
+@Configuration
+@ConditionalOnProperty(name = "user-projection.enabled", havingValue = "true")
+public class UserProjectionKafkaConfig {
+
+    /**
+     * Container factory for the user-events listener: large batches, so replaying the compacted topic
+     * on warm-up takes few polls and upsert batches, and an idle event once the topic is drained.
+     * <p>
+     * Values are read as {@link UserDto} regardless of the type headers set by userservice;
+     * a new consumer group starts from the beginning of the topic.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> userEventsContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${user-projection.max-poll-records:2000}") int maxPollRecords,
+            @Value("${user-projection.caught-up-idle:5s}") Duration caughtUpIdle) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(caughtUpIdle.toMillis());
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerProperties.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, "false");
+        consumerProperties.put(JsonDeserializer.VALUE_DEFAULT_TYPE, UserDto.class.getName());
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(100L, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+}
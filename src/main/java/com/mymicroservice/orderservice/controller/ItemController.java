@@ -1,13 +1,22 @@
 package com.mymicroservice.orderservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.ItemDto;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
 import com.mymicroservice.orderservice.service.ItemService;
+import com.mymicroservice.orderservice.util.ETagUtil;
+import com.mymicroservice.orderservice.util.NdjsonWriter;
+import com.mymicroservice.orderservice.util.SerializedResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
 import org.springframework.validation.annotation.Validated;
@@ -17,9 +26,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Set;
@@ -33,14 +44,20 @@ import java.util.Set;
 public class ItemController {
 
     private final ItemService itemService;
+    private final ObjectMapper objectMapper;
+    private final ItemResponseCache itemResponseCache;
 
+    /**
+     * Carries the version of the item as its ETag; a matching {@code If-None-Match} gets 304.
+     * The item comes from the item cache, so the check costs no query.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<?> getItemById (@PathVariable("id") Long id) {
         log.info("Request to find the Item by id: {}", id);
         ItemDto itemDto = itemService.getItemById(id);
         return ObjectUtils.isEmpty(itemDto)
                 ? ResponseEntity.notFound().build()
-                : ResponseEntity.ok(itemDto);
+                : ETagUtil.ok(itemDto, itemDto.getVersion());
     }
 
     @PostMapping("/")
@@ -52,16 +69,20 @@ public class ItemController {
                 : ResponseEntity.ok(savedItemDto);
     }
 
+    /**
+     * With {@code If-Match} the item is updated only if it still has that version (412 otherwise).
+     */
     @PutMapping("/{id}")
     public ResponseEntity <?> updateItem (@PathVariable("id") Long id,
-                                          @RequestBody @Valid ItemDto itemDto){
+                                          @RequestBody @Valid ItemDto itemDto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         log.info("Request to update the Item: {}", itemDto);
 
-        ItemDto updatedItemDto =  itemService.updateItem(id, itemDto);
+        ItemDto updatedItemDto =  itemService.updateItem(id, itemDto, ETagUtil.expectedVersion(ifMatch));
 
         return ObjectUtils.isEmpty(updatedItemDto)
                 ? ResponseEntity.notFound().build()
-                : ResponseEntity.ok(updatedItemDto);
+                : ETagUtil.ok(updatedItemDto, updatedItemDto.getVersion());
     }
 
     @DeleteMapping("/{id}")
@@ -82,18 +103,71 @@ public class ItemController {
         return ResponseEntity.ok(itemDtos);
     }
 
+    /**
+     * Served from the response cache (see {@link #cachedJson}).
+     */
     @GetMapping("/all")
-    public ResponseEntity<List<ItemDto>> getAllItems() {
+    public ResponseEntity<byte[]> getAllItems(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Request to find all Items");
-        return ResponseEntity.ok(itemService.getAllItems());
+        return cachedJson(itemResponseCache.get("all", itemService::getAllItems), acceptEncoding);
     }
 
+    /**
+     * Streaming variant of {@code /all} selected with {@code Accept: application/x-ndjson}:
+     * items are written one JSON document per line while they are read from the database,
+     * so the response is never materialized in memory.
+     */
+    @GetMapping(value = "/all", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllItems() {
+        log.info("Request to export all Items as NDJSON");
+        StreamingResponseBody body = out -> {
+            NdjsonWriter<ItemDto> writer = new NdjsonWriter<>(out, objectMapper);
+            itemService.exportAllItems(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Served from the response cache (see {@link #cachedJson}).
+     */
     @GetMapping("/paginated")
-    public ResponseEntity<Page<ItemDto>> getAllItemsWithPagination(
+    public ResponseEntity<byte[]> getAllItemsWithPagination(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Request to find all Items with pagination");
-        return ResponseEntity.ok(itemService.getAllItemsNativeWithPagination(page, size));
+        SerializedResponse response = itemResponseCache.get("paginated?page=" + page + "&size=" + size,
+                () -> itemService.getAllItemsNativeWithPagination(page, size));
+        return cachedJson(response, acceptEncoding);
     }
 
+    /**
+     * Keyset pagination: returns up to {@code limit} items after the given cursor, without a total count.
+     * The next page is requested with {@code after} set to {@code nextCursor} of the response.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<ItemDto>> getAllItemsWithCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        log.info("Request to find Items after cursor: {}, limit: {}", after, limit);
+        return ResponseEntity.ok(itemService.getAllItemsWithCursor(after, limit));
+    }
+
+    /**
+     * Writes a pre-serialized JSON body with its strong ETag, gzip-compressed when the client accepts it.
+     * A request whose {@code If-None-Match} matches the ETag gets {@code 304 Not Modified} without a body.
+     */
+    private static ResponseEntity<byte[]> cachedJson(SerializedResponse response, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (response.hasGzip() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return builder.eTag(response.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(response.gzip());
+        }
+        return builder.eTag(response.etag()).body(response.json());
+    }
 }
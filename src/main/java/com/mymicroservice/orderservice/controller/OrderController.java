@@ -1,15 +1,24 @@
 package com.mymicroservice.orderservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderDto;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.model.OrderStatus;
 import com.mymicroservice.orderservice.service.OrderService;
+import com.mymicroservice.orderservice.service.OrderStatusStreamService;
+import com.mymicroservice.orderservice.util.ETagUtil;
+import com.mymicroservice.orderservice.util.NdjsonWriter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.ObjectUtils;
 import org.springframework.validation.annotation.Validated;
@@ -19,11 +28,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @RestController
@@ -35,14 +48,54 @@ import java.util.Set;
 public class OrderController {
 
     private final OrderService orderService;
-
+    private final OrderStatusStreamService orderStatusStreamService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Carries the version of the order as its ETag. A poll with {@code If-None-Match} is answered from
+     * a version-only lookup: 304 while the order is unchanged, without loading it or calling userservice.
+     * A response whose user couldn't be resolved carries no ETag, so it is never confirmed by a 304.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getOrderById (@PathVariable("id") Long id) {
+    public ResponseEntity<?> getOrderById (@PathVariable("id") Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Request to find the Order by id: {}", id);
+        if (ifNoneMatch != null) {
+            Optional<Long> version = orderService.getOrderVersion(id);
+            if (version.isPresent() && ETagUtil.noneMatchHits(ifNoneMatch, version.get())) {
+                return ETagUtil.notModified(version.get());
+            }
+        }
         OrderWithUserResponse orderWithUserResponse = orderService.getOrderById(id);
-        return ObjectUtils.isEmpty(orderWithUserResponse)
-                ? ResponseEntity.notFound().build()
-                : ResponseEntity.ok(orderWithUserResponse);
+        if (ObjectUtils.isEmpty(orderWithUserResponse)) {
+            return ResponseEntity.notFound().build();
+        }
+        // without its user (enrichment skipped) the body gets no ETag, so a later poll fetches the enriched order
+        return orderWithUserResponse.getUser() == null
+                ? ResponseEntity.ok(orderWithUserResponse)
+                : ETagUtil.ok(orderWithUserResponse, orderWithUserResponse.getOrder().getVersion());
+    }
+
+    /**
+     * Server-Sent Events stream of the status of the order, replacing polling of {@code /{id}}:
+     * starts with the current status and pushes every applied transition, whichever instance applied it.
+     * A missing order is answered with 404 without a body, as the client accepts only {@code text/event-stream}.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrderStatus(@PathVariable("id") Long id) {
+        log.info("Request to stream status changes of the Order: {}", id);
+        return orderStatusStreamService.subscribeToOrder(id, () -> orderService.getOrderStatus(id))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Server-Sent Events stream of status transitions of all orders of the user.
+     */
+    @GetMapping(value = "/by-user/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserOrderStatuses(@PathVariable("userId") Long userId) {
+        log.info("Request to stream status changes of the Orders of the User: {}", userId);
+        return orderStatusStreamService.subscribeToUser(userId);
     }
 
     @PostMapping({"", "/"})
@@ -54,16 +107,22 @@ public class OrderController {
                 : ResponseEntity.ok(orderWithUserResponse);
     }
 
+    /**
+     * With {@code If-Match} the order is updated only if it still has that version (412 otherwise),
+     * so a client can't overwrite a change it hasn't seen. A status the order can't be moved to
+     * from its current one is rejected with 409.
+     */
     @PutMapping("/{id}")
     public ResponseEntity <?> updateOrder (@PathVariable("id") Long id,
-                                           @RequestBody @Valid OrderDto orderDto){
+                                           @RequestBody @Valid OrderDto orderDto,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         log.info("Request to update the Order: {}", orderDto);
 
-        OrderWithUserResponse orderWithUserResponse =  orderService.updateOrder(id, orderDto);
+        OrderWithUserResponse orderWithUserResponse =  orderService.updateOrder(id, orderDto, ETagUtil.expectedVersion(ifMatch));
 
         return ObjectUtils.isEmpty(orderWithUserResponse)
                 ? ResponseEntity.notFound().build()
-                : ResponseEntity.ok(orderWithUserResponse);
+                : ETagUtil.ok(orderWithUserResponse, orderWithUserResponse.getOrder().getVersion());
     }
 
     @DeleteMapping("/{id}")
@@ -83,6 +142,15 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByUserEmail(email));
     }
 
+    @GetMapping("/by-email/cursor")
+    public ResponseEntity<CursorPageDto<OrderWithUserResponse>> getOrdersByUserEmailWithCursor(
+            @RequestParam("email") String email,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        log.info("Request to find Orders of the User with email: {} after cursor: {}, limit: {}", email, after, limit);
+        return ResponseEntity.ok(orderService.getOrdersByUserEmailWithCursor(email, after, limit));
+    }
+
     @GetMapping("/find-by-ids")
     public ResponseEntity<List<OrderWithUserResponse>> getOrdersIdIn(@RequestParam @NotEmpty Set<Long> ids) {
         log.info("Request to find Orders by IDs: {}", ids);
@@ -97,12 +165,37 @@ public class OrderController {
         return ResponseEntity.ok(orderWithUserResponses);
     }
 
+    @GetMapping("/find-by-statuses/cursor")
+    public ResponseEntity<CursorPageDto<OrderWithUserResponse>> getByStatusInWithCursor(
+            @RequestParam @NotEmpty Set<OrderStatus> statuses,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        log.info("Request to find Orders by statuses: {} after cursor: {}, limit: {}", statuses, after, limit);
+        return ResponseEntity.ok(orderService.findByStatusInWithCursor(statuses, after, limit));
+    }
+
     @GetMapping("/all")
     public ResponseEntity<List<OrderWithUserResponse>> getAllOrders() {
         log.info("Request to find all Orders");
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    /**
+     * Streaming variant of {@code /all} selected with {@code Accept: application/x-ndjson}:
+     * orders with their users are written one JSON document per line while they are read from the database,
+     * so the response is never materialized in memory.
+     */
+    @GetMapping(value = "/all", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllOrders() {
+        log.info("Request to export all Orders as NDJSON");
+        StreamingResponseBody body = out -> {
+            NdjsonWriter<OrderWithUserResponse> writer = new NdjsonWriter<>(out, objectMapper);
+            orderService.exportAllOrders(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/paginated")
     public ResponseEntity<Page<OrderDto>> getAllOrdersWithPagination(
             @RequestParam(defaultValue = "0") int page,
@@ -110,4 +203,17 @@ public class OrderController {
         log.info("Request to find all Orders with pagination");
         return ResponseEntity.ok(orderService.getAllOrdersNativeWithPagination(page, size));
     }
+
+    /**
+     * Keyset pagination: returns up to {@code limit} orders after the given cursor, without a total count.
+     * Unlike {@code /paginated}, the cost of a page doesn't grow with its depth.
+     * The next page is requested with {@code after} set to {@code nextCursor} of the response.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<OrderDto>> getAllOrdersWithCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        log.info("Request to find Orders after cursor: {}, limit: {}", after, limit);
+        return ResponseEntity.ok(orderService.getAllOrdersWithCursor(after, limit));
+    }
 }
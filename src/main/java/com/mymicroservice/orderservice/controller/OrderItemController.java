@@ -1,9 +1,14 @@
 package com.mymicroservice.orderservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
 import com.mymicroservice.orderservice.service.OrderItemService;
+import com.mymicroservice.orderservice.util.NdjsonWriter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Set;
@@ -33,6 +39,7 @@ import java.util.Set;
 public class OrderItemController {
 
     private final OrderItemService orderItemService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getOrderItemById (@PathVariable("id") Long id) {
@@ -88,6 +95,22 @@ public class OrderItemController {
         return ResponseEntity.ok(orderItemService.getAllOrderItems());
     }
 
+    /**
+     * Streaming variant of {@code /all} selected with {@code Accept: application/x-ndjson}:
+     * order items are written one JSON document per line while they are read from the database,
+     * so the response is never materialized in memory.
+     */
+    @GetMapping(value = "/all", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllOrderItems() {
+        log.info("Request to export all OrderItems as NDJSON");
+        StreamingResponseBody body = out -> {
+            NdjsonWriter<OrderItemDto> writer = new NdjsonWriter<>(out, objectMapper);
+            orderItemService.exportAllOrderItems(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/paginated")
     public ResponseEntity<Page<OrderItemDto>> getAllOrderItemsWithPagination(
             @RequestParam(defaultValue = "0") int page,
@@ -95,4 +118,16 @@ public class OrderItemController {
         log.info("Request to find all OrderItems with pagination");
         return ResponseEntity.ok(orderItemService.getAllOrderItemsNativeWithPagination(page, size));
     }
+
+    /**
+     * Keyset pagination: returns up to {@code limit} order items after the given cursor, without a total count.
+     * The next page is requested with {@code after} set to {@code nextCursor} of the response.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<OrderItemDto>> getAllOrderItemsWithCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        log.info("Request to find OrderItems after cursor: {}, limit: {}", after, limit);
+        return ResponseEntity.ok(orderItemService.getAllOrderItemsWithCursor(after, limit));
+    }
 }
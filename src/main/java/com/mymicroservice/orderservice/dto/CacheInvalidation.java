@@ -0,0 +1,32 @@
+package com.mymicroservice.orderservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Entries of an in-process (or second-level) cache changed by a committed write: published to the cache-invalidations topic
+ * and evicted from that cache on every instance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+
+    public enum Type {
+        /** Item catalog near-cache and second-level cache of items, by item ID. */
+        ITEMS,
+        /** Serialized responses of the item catalog endpoints, all at once (no IDs). */
+        ITEM_RESPONSES,
+        /** Second-level cache of orders and of their order item collections, by order ID. */
+        ORDERS,
+        /** Second-level cache of order items, by order item ID. */
+        ORDER_ITEMS
+    }
+
+    private Type type;
+
+    private List<Long> ids;
+}
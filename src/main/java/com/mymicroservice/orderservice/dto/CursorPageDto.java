@@ -0,0 +1,24 @@
+package com.mymicroservice.orderservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) pagination.
+ * <p>
+ * Unlike {@link org.springframework.data.domain.Page} it carries no total count:
+ * the next page is requested with {@code after=nextCursor}, and {@code nextCursor}
+ * is {@code null} on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageDto<T> {
+    private List<T> content;
+    private String nextCursor;
+}
@@ -1,6 +1,7 @@
 package com.mymicroservice.orderservice.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -30,4 +31,7 @@ public class ItemDto {
     @Positive(message = "The price must be greater than 0")
     @Digits(integer = 15, fraction = 2)
     private BigDecimal price;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
@@ -34,6 +34,22 @@ public class OrderDto {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private LocalDate creationDate;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @NotEmpty(message = "OrderItems cannot be empty")
     private Set<OrderItemDto> orderItems = new HashSet<>();
+
+    /**
+     * Constructor used by JPQL constructor expressions ({@code SELECT new OrderDto(...)}) in
+     * {@code OrderRepository}: order items are read by a separate projection and attached afterwards.
+     */
+    public OrderDto(Long id, Long userId, OrderStatus status, LocalDate creationDate, Long version) {
+        this.id = id;
+        this.userId = userId;
+        this.status = status;
+        this.creationDate = creationDate;
+        this.version = version;
+        this.orderItems = new HashSet<>();
+    }
 }
@@ -0,0 +1,24 @@
+package com.mymicroservice.orderservice.dto;
+
+import com.mymicroservice.orderservice.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of an order as of the given version: published to the order-status-changes topic
+ * for every applied transition and pushed to the subscribers of the order and of its user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChange {
+
+    private Long orderId;
+
+    private Long userId;
+
+    private OrderStatus status;
+
+    private Long version;
+}
@@ -0,0 +1,8 @@
+package com.mymicroservice.orderservice.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.mymicroservice.orderservice.exception;
+
+public class InvalidStatusTransitionException extends RuntimeException {
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mymicroservice.orderservice.exception;
+
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mymicroservice.orderservice.exception;
+
+public class UserServiceUnavailableException extends RuntimeException {
+
+    public UserServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
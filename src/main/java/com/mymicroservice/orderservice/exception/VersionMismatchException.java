@@ -0,0 +1,7 @@
+package com.mymicroservice.orderservice.exception;
+
+public class VersionMismatchException extends RuntimeException {
+    public VersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,147 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.mymicroservices.common.events.PaymentEventDto;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles CREATE_PAYMENT events in batches (enabled by {@code kafka.consumer.batch.enabled=true}).
+ * <p>
+ * Events of a batch are collapsed per order (the last status wins, as it would with one-by-one processing)
+ * and applied by {@link OrderService#updateOrderStatuses(Map)} with one UPDATE per status.
+ * Offsets are committed once per batch. Invalid events are logged and skipped like in
+ * {@link PaymentEventListener}. If the bulk update fails, the batch is applied order by order,
+ * so a failing record is reported to the error handler and only it and the records after it are redelivered.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "kafka.consumer.batch.enabled", havingValue = "true")
+public class BatchPaymentEventListener {
+
+    private final OrderService orderService;
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final String SOURCE_SERVICE_HEADER = "X-Source-Service";
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    @KafkaListener(
+            topics = "${kafka.consumer.topics.create-payment}",
+            groupId = "${kafka.consumer.group-id}",
+            containerFactory = "batchListenerContainerFactory"
+    )
+    public void onCreatePayments(List<ConsumerRecord<String, PaymentEventDto>> records, Acknowledgment ack) {
+        log.info("Received {} CREATE_PAYMENT events", records.size());
+
+        // the record that set the status last, per order
+        Map<Long, ConsumerRecord<String, PaymentEventDto>> lastRecords = new LinkedHashMap<>();
+        Map<Long, OrderStatus> statuses = new LinkedHashMap<>();
+        for (ConsumerRecord<String, PaymentEventDto> record : records) {
+            withMdc(record, () -> {
+                OrderStatus status = parse(record);
+                if (status != null) {
+                    Long orderId = Long.valueOf(record.value().getOrderId());
+                    lastRecords.remove(orderId);
+                    lastRecords.put(orderId, record);
+                    statuses.remove(orderId);
+                    statuses.put(orderId, status);
+                }
+            });
+        }
+
+        if (!statuses.isEmpty()) {
+            try {
+                orderService.updateOrderStatuses(statuses);
+            } catch (Exception e) {
+                log.warn("Bulk status update of {} orders failed, applying them one by one: {}",
+                        statuses.size(), e.getMessage());
+                applyOneByOne(statuses, lastRecords);
+            }
+        }
+        ack.acknowledge(); // commit offsets of the whole batch
+        log.info("Successfully applied {} CREATE_PAYMENT events to {} orders", records.size(), statuses.size());
+    }
+
+    /**
+     * Applies the statuses in the order of their records ({@code lastRecords} is ordered by offset).
+     * Transitions that don't apply (missing order, disallowed status) are skipped. The first failure
+     * is reported with its record, so the offsets before it are committed and the batch is redelivered from it.
+     */
+    private void applyOneByOne(Map<Long, OrderStatus> statuses,
+                               Map<Long, ConsumerRecord<String, PaymentEventDto>> lastRecords) {
+        for (Map.Entry<Long, ConsumerRecord<String, PaymentEventDto>> entry : lastRecords.entrySet()) {
+            Long orderId = entry.getKey();
+            ConsumerRecord<String, PaymentEventDto> record = entry.getValue();
+            try {
+                orderService.updateOrderStatus(orderId, statuses.get(orderId));
+            } catch (Exception e) {
+                log.error("Error processing CREATE_PAYMENT event [key: {}, partition: {}, offset: {}]: {}",
+                        record.key(), record.partition(), record.offset(), e.getMessage(), e);
+                throw new BatchListenerFailedException("Failed to update order " + orderId, e, record);
+            }
+        }
+    }
+
+    /**
+     * Validates the event the same way as {@link PaymentEventListener}.
+     *
+     * @return the new order status, or {@code null} if the event must be skipped
+     */
+    private OrderStatus parse(ConsumerRecord<String, PaymentEventDto> record) {
+        PaymentEventDto event = record.value();
+        if (event == null) {
+            log.error("Received null CREATE_PAYMENT event [partition: {}, offset: {}]", record.partition(), record.offset());
+            return null;
+        }
+        if (event.getOrderId() == null) {
+            log.error("Order ID is null in CREATE_PAYMENT event: {}", event);
+            return null;
+        }
+        try {
+            Long.valueOf(event.getOrderId());
+        } catch (NumberFormatException e) {
+            log.error("Invalid order ID format: {}", event.getOrderId());
+            return null;
+        }
+        if (event.getStatus() == null) {
+            log.error("Status is null in CREATE_PAYMENT event: {}", event);
+            return null;
+        }
+        return PaymentEventListener.toOrderStatus(event.getStatus());
+    }
+
+    private void withMdc(ConsumerRecord<String, PaymentEventDto> record, Runnable action) {
+        putHeader(record, REQUEST_ID_HEADER, "requestId");
+        putHeader(record, SOURCE_SERVICE_HEADER, "sourceService");
+        MDC.put("serviceName", serviceName);
+        try {
+            action.run();
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private static void putHeader(ConsumerRecord<String, PaymentEventDto> record, String header, String mdcKey) {
+        Header value = record.headers().lastHeader(header);
+        if (value != null && value.value() != null) {
+            MDC.put(mdcKey, new String(value.value(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.config.BroadcastKafkaConfig;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.repository.SecondLevelCacheEvictor;
+import com.mymicroservice.orderservice.service.ItemCatalogCache;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts the entries changed on any instance (this one included) from the in-process caches and the second-level
+ * cache of this instance. Status transitions of orders are not published here, see {@link OrderStatusChangeListener}.
+ * <p>
+ * Every instance consumes the whole topic with a consumer group of its own (random suffix), from the latest offset
+ * and without committing: a starting instance has empty caches, nothing written before can be stale in them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationListener {
+
+    private final ItemCatalogCache itemCatalogCache;
+    private final ItemResponseCache itemResponseCache;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    @KafkaListener(
+            topics = "${kafka.producer.topics.cache-invalidations}",
+            groupId = "${cache-invalidation.group-id}-${random.uuid}",
+            containerFactory = BroadcastKafkaConfig.BROADCAST_CONTAINER_FACTORY
+    )
+    public void onInvalidation(CacheInvalidation invalidation) {
+        log.debug("Invalidating {} {}", invalidation.getType(), invalidation.getIds());
+        switch (invalidation.getType()) {
+            case ITEMS -> {
+                itemCatalogCache.invalidate(invalidation.getIds());
+                secondLevelCacheEvictor.evictItems(invalidation.getIds());
+            }
+            case ITEM_RESPONSES -> itemResponseCache.invalidateAll();
+            case ORDERS -> secondLevelCacheEvictor.evictOrders(invalidation.getIds());
+            case ORDER_ITEMS -> secondLevelCacheEvictor.evictOrderItems(invalidation.getIds());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes invalidations of in-process caches to the cache-invalidations topic, from which every instance
+ * evicts the entries (see {@link CacheInvalidationListener}); the instance that made the write evicts them
+ * locally as well, without waiting for the round trip.
+ * <p>
+ * Invalidations are sent after the transaction committed and without awaiting the ack: a lost record leaves
+ * other instances serving the old entry until it expires, so the time to live of each cache bounds the staleness.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationPublisher {
+
+    private final KafkaTemplate<String, CacheInvalidation> kafkaTemplate;
+
+    @Value("${kafka.producer.topics.cache-invalidations}")
+    private String cacheInvalidationTopic;
+
+    /**
+     * Invalidates the entries with the given IDs; nothing is sent without IDs.
+     */
+    public void publishAfterCommit(CacheInvalidation.Type type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        CacheInvalidation invalidation = new CacheInvalidation(type, List.copyOf(ids));
+        TransactionUtil.afterCommit(() -> send(invalidation));
+    }
+
+    /**
+     * Invalidates a cache as a whole.
+     */
+    public void publishAfterCommit(CacheInvalidation.Type type) {
+        CacheInvalidation invalidation = new CacheInvalidation(type, List.of());
+        TransactionUtil.afterCommit(() -> send(invalidation));
+    }
+
+    private void send(CacheInvalidation invalidation) {
+        try {
+            kafkaTemplate.send(cacheInvalidationTopic, invalidation.getType().name(), invalidation)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.warn("Failed to publish invalidation of {} {}", invalidation.getType(), invalidation.getIds(), ex);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish invalidation of {} {}", invalidation.getType(), invalidation.getIds(), e);
+        }
+    }
+}
@@ -22,7 +22,15 @@ public class OrderEventProducer {
     @Value("${kafka.producer.topics.create-order}")
     private String orderTopic;
 
-    public void sendCreateOrder(OrderEventDto event, Runnable onSuccess) {
+    /**
+     * Sends the event asynchronously. The returned future completes when the broker acknowledged
+     * the record, so callers can put many events in flight before awaiting their acks.
+     * Headers are taken from the MDC of the calling thread.
+     * <p>
+     * The completion callback runs on the producer network thread and only logs: work that depends
+     * on the ack (database updates) must be done by the caller on its own thread.
+     */
+    public CompletableFuture<SendResult<String, OrderEventDto>> sendCreateOrder(OrderEventDto event) {
 
         log.info("Producing CREATE_ORDER for orderId={}", event.getOrderId());
 
@@ -35,18 +43,18 @@ public class OrderEventProducer {
                 orderTopic
         );
 
-        CompletableFuture<SendResult<String, OrderEventDto>> future =
-                kafkaTemplate.send(message);
-
-        future.whenComplete((result, ex) -> {
+        return kafkaTemplate.send(message).whenComplete((result, ex) -> {
             if (ex == null) {
                 log.info("CREATE_ORDER sent for orderId={}, offset={}",
                         event.getOrderId(),
                         result.getRecordMetadata().offset());
-                onSuccess.run(); // Calling a callback after successful sending => changing the status to PROCESSING
             } else {
                 log.error("Failed to send CREATE_ORDER for orderId={}", event.getOrderId(), ex);
             }
         });
     }
+
+    public String getOrderTopic() {
+        return orderTopic;
+    }
 }
@@ -0,0 +1,41 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.config.BroadcastKafkaConfig;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.repository.SecondLevelCacheEvictor;
+import com.mymicroservice.orderservice.service.OrderStatusStreamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fans status changes out to the subscribers connected to this instance, and evicts the changed orders from the
+ * second-level cache of this instance: a transition committed on another instance would otherwise be served
+ * with the old status (and version) until the entry expires.
+ * <p>
+ * Every instance consumes the whole topic with a consumer group of its own (random suffix) and starts
+ * at the latest offset without committing any: subscribers only need the changes made while they are connected,
+ * the current status is sent to them when they subscribe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusChangeListener {
+
+    private final OrderStatusStreamService orderStatusStreamService;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    @KafkaListener(
+            topics = "${kafka.producer.topics.order-status-changes}",
+            groupId = "${order-status.stream.group-id}-${random.uuid}",
+            containerFactory = BroadcastKafkaConfig.BROADCAST_CONTAINER_FACTORY
+    )
+    public void onStatusChange(OrderStatusChange change) {
+        log.debug("Dispatching status {} of orderId={}", change.getStatus(), change.getOrderId());
+        secondLevelCacheEvictor.evictOrders(List.of(change.getOrderId()));
+        orderStatusStreamService.dispatch(change);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes applied status transitions to the order-status-changes topic, from which every instance
+ * pushes them to its own subscribers (see {@link OrderStatusChangeListener}).
+ * <p>
+ * Changes are sent after the transaction committed and without awaiting the ack: the stream is a
+ * notification channel, a lost record only delays a client until its next reconnect, which starts
+ * with the current status of the order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusChangePublisher {
+
+    private final KafkaTemplate<String, OrderStatusChange> kafkaTemplate;
+
+    @Value("${kafka.producer.topics.order-status-changes}")
+    private String orderStatusTopic;
+
+    public void publishAfterCommit(Collection<OrderStatusChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<OrderStatusChange> committed = List.copyOf(changes);
+        TransactionUtil.afterCommit(() -> committed.forEach(this::send));
+    }
+
+    private void send(OrderStatusChange change) {
+        try {
+            kafkaTemplate.send(orderStatusTopic, String.valueOf(change.getOrderId()), change)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.warn("Failed to publish status {} of orderId={}", change.getStatus(), change.getOrderId(), ex);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish status {} of orderId={}", change.getStatus(), change.getOrderId(), e);
+        }
+    }
+}
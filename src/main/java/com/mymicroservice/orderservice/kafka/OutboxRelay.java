@@ -0,0 +1,221 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background relay that publishes the transactional outbox to Kafka.
+ * <p>
+ * The relay drains the outbox batch by batch (see {@link OutboxService#relayBatch(int)}) and then waits
+ * on {@code LISTEN outbox_events}: the insert trigger of the table notifies it when new events are committed,
+ * so they are published right away. {@code poll-interval} bounds the wait, which covers lost notifications,
+ * a broken listening connection and retries of failed events.
+ * <p>
+ * The listening connection is opened directly with the datasource settings instead of being borrowed
+ * from the pool, so it never takes a pooled connection away from HTTP requests.
+ * <p>
+ * Broker acknowledgements are awaited and the resulting status transitions are written on this thread;
+ * the Kafka producer network thread only completes the send futures. At most one batch is in flight,
+ * so when the broker or the database slows down the relay slows down with it (a full producer buffer
+ * blocks {@code send} here, never in an HTTP thread) and the backlog stays in the table.
+ * The backlog is published as the {@value #PENDING_METRIC} gauge and its age as {@value #LAG_METRIC}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay implements SmartLifecycle {
+
+    static final String CHANNEL = "outbox_events";
+
+    public static final String PENDING_METRIC = "outbox.pending";
+    public static final String LAG_METRIC = "outbox.lag";
+    public static final String PUBLISHED_METRIC = "outbox.published";
+
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    private final OutboxService outboxService;
+    private final DataSourceProperties dataSourceProperties;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedCounter;
+
+    private volatile boolean running;
+    private Thread worker;
+    private Connection listenConnection;
+    private long nextPurge;
+
+    public OutboxRelay(OutboxService outboxService,
+                       DataSourceProperties dataSourceProperties,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.poll-interval:5s}") Duration pollInterval,
+                       @Value("${outbox.relay.retention:7d}") Duration retention) {
+        this.outboxService = outboxService;
+        this.dataSourceProperties = dataSourceProperties;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+
+        Gauge.builder(PENDING_METRIC, pending, AtomicLong::get)
+                .description("Events in the outbox waiting to be published")
+                .baseUnit("events")
+                .register(meterRegistry);
+        TimeGauge.builder(LAG_METRIC, lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest event waiting to be published")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder(PUBLISHED_METRIC)
+                .description("Events published from the outbox")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        nextPurge = System.nanoTime();
+        worker = Thread.ofPlatform().name("outbox-relay").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                // a blocked LISTEN wait returns after at most one poll interval
+                worker.join(pollInterval.plusSeconds(1).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        log.info("Outbox relay started [batchSize: {}, pollInterval: {}]", batchSize, pollInterval);
+        while (running) {
+            try {
+                relay();
+                awaitNotification();
+            } catch (Exception e) {
+                log.error("Outbox relay failed: {}", e.getMessage(), e);
+                sleep(pollInterval);
+            }
+        }
+        closeListenConnection();
+        log.info("Outbox relay stopped");
+    }
+
+    /**
+     * Drains the outbox and purges published events. The backlog gauges are refreshed even when relaying fails:
+     * a failing relay is when they matter, they mustn't freeze at the last healthy values.
+     */
+    void relay() {
+        try {
+            drain();
+            purgeIfDue();
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    /**
+     * Publishes batches while they come back full, i.e. while there may be more pending events.
+     */
+    void drain() {
+        int published;
+        do {
+            published = outboxService.relayBatch(batchSize);
+            publishedCounter.increment(published);
+        } while (published == batchSize && !Thread.currentThread().isInterrupted()); // stop() interrupts the worker
+    }
+
+    void refreshBacklog() {
+        try {
+            pending.set(outboxService.countPending());
+            lagMillis.set(outboxService.getLag().toMillis());
+        } catch (RuntimeException e) { // mustn't hide the failure of the relay itself
+            log.warn("Failed to refresh the outbox backlog: {}", e.getMessage());
+        }
+    }
+
+    private void purgeIfDue() {
+        long now = System.nanoTime();
+        if (now - nextPurge >= 0) {
+            outboxService.purgePublished(retention);
+            nextPurge = now + PURGE_INTERVAL.toNanos();
+        }
+    }
+
+    /**
+     * Blocks until a notification arrives or the poll interval elapses.
+     */
+    private void awaitNotification() {
+        try {
+            if (listenConnection == null) {
+                listenConnection = openListenConnection();
+            }
+            listenConnection.unwrap(PGConnection.class).getNotifications((int) pollInterval.toMillis());
+        } catch (SQLException e) {
+            log.warn("LISTEN {} is unavailable, falling back to polling: {}", CHANNEL, e.getMessage());
+            closeListenConnection();
+            sleep(pollInterval);
+        }
+    }
+
+    private Connection openListenConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private void closeListenConnection() {
+        if (listenConnection != null) {
+            try {
+                listenConnection.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close the LISTEN connection: {}", e.getMessage());
+            }
+            listenConnection = null;
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
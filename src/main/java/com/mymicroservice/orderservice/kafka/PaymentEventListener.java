@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.mymicroservices.common.events.PaymentEventDto;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -16,9 +17,14 @@ import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 
+/**
+ * Handles CREATE_PAYMENT events one record at a time.
+ * Used when batch mode is off, see {@link BatchPaymentEventListener}.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
+@ConditionalOnProperty(name = "kafka.consumer.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class PaymentEventListener {
 
     private final OrderService orderService;
@@ -71,30 +77,19 @@ public class PaymentEventListener {
                 return;
             }
 
-            OrderStatus enumStatus;
             String status = event.getStatus();
             if (status == null) {
                 log.error("Status is null in CREATE_PAYMENT event: {}", event);
                 return;
             }
+            OrderStatus enumStatus = toOrderStatus(status);
 
-            switch (status) {
-                case "PAID":
-                    enumStatus = OrderStatus.PAID;
-                    break;
-                case "FAILED":
-                    enumStatus = OrderStatus.FAILED;
-                    break;
-                default:
-                    log.warn("Unknown payment status: {}, defaulting to FAILED", status);
-                    enumStatus = OrderStatus.FAILED;
-                    break;
-            }
-
-            orderService.updateOrderStatus(orderId, enumStatus);
+            boolean applied = orderService.updateOrderStatus(orderId, enumStatus);
             ack.acknowledge(); // commit offset
 
-            log.info("Successfully updated order {} status to {}", orderId, enumStatus);
+            if (applied) {
+                log.info("Successfully updated order {} status to {}", orderId, enumStatus);
+            }
 
         } catch (Exception e) {
             log.error("Error processing CREATE_PAYMENT event [key: {}, partition: {}, offset: {}]: {}",
@@ -105,4 +100,19 @@ public class PaymentEventListener {
             MDC.clear();
         }
     }
+
+    /**
+     * Maps the payment status to the order status. Unknown statuses are treated as FAILED.
+     */
+    static OrderStatus toOrderStatus(String status) {
+        switch (status) {
+            case "PAID":
+                return OrderStatus.PAID;
+            case "FAILED":
+                return OrderStatus.FAILED;
+            default:
+                log.warn("Unknown payment status: {}, defaulting to FAILED", status);
+                return OrderStatus.FAILED;
+        }
+    }
 }
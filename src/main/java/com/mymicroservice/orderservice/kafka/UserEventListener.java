@@ -0,0 +1,118 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.service.UserProjectionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds the local user projection from the compacted user-events topic of userservice
+ * (enabled by {@code user-projection.enabled=true}).
+ * <p>
+ * Records are keyed by userId and carry the full user; a record with a {@code null} value (tombstone)
+ * means the user was deleted. Records of a batch are collapsed per user (the last one wins) and applied
+ * with one upsert batch and one delete, so replaying the compacted topic on first start costs
+ * one round trip per poll rather than per user. Offsets are committed once per batch.
+ * <p>
+ * After each batch the lag of its partitions is reported to the projection, and an idle container (no records
+ * for an interval) reports its partitions as caught up: the projection serves reads only while every assigned
+ * partition is caught up, whichever consumer of the listener it is assigned to (see {@link UserProjectionService}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "user-projection.enabled", havingValue = "true")
+public class UserEventListener implements ConsumerSeekAware {
+
+    public static final String LISTENER_ID = "user-projection";
+
+    private final UserProjectionService userProjectionService;
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = "${kafka.consumer.topics.user-events}",
+            groupId = "${user-projection.group-id}",
+            containerFactory = "userEventsContainerFactory"
+    )
+    public void onUserEvents(List<ConsumerRecord<String, UserDto>> records, Acknowledgment ack, Consumer<?, ?> consumer) {
+        Map<Long, UserDto> users = new LinkedHashMap<>();
+        for (ConsumerRecord<String, UserDto> record : records) {
+            Long userId = userId(record);
+            if (userId == null) {
+                log.error("Skipping user event without user ID [partition: {}, offset: {}]", record.partition(), record.offset());
+                continue;
+            }
+            UserDto user = record.value();
+            if (user != null) {
+                user.setUserId(userId);
+            }
+            users.put(userId, user);
+        }
+
+        if (!users.isEmpty()) {
+            userProjectionService.applyUserEvents(users);
+        }
+        ack.acknowledge();
+        userProjectionService.recordLag(lagOf(records, consumer));
+        log.debug("Applied {} user events to {} users", records.size(), users.size());
+    }
+
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getListenerId().startsWith(LISTENER_ID) && event.getTopicPartitions() != null) {
+            userProjectionService.recordLag(event.getTopicPartitions().stream()
+                    .collect(Collectors.toMap(TopicPartition::partition, partition -> 0L)));
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        userProjectionService.partitionsAssigned(assignments.keySet().stream().map(TopicPartition::partition).toList());
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        userProjectionService.partitionsRevoked(partitions.stream().map(TopicPartition::partition).toList());
+    }
+
+    /**
+     * Records behind the end of each partition of the batch, as of the last fetch (no request to the broker).
+     */
+    private static Map<Integer, Long> lagOf(List<ConsumerRecord<String, UserDto>> records, Consumer<?, ?> consumer) {
+        Map<Integer, Long> lag = new HashMap<>();
+        records.stream()
+                .map(record -> new TopicPartition(record.topic(), record.partition()))
+                .distinct()
+                .forEach(partition -> consumer.currentLag(partition).ifPresent(value -> lag.put(partition.partition(), value)));
+        return lag;
+    }
+
+    private static Long userId(ConsumerRecord<String, UserDto> record) {
+        if (record.key() != null) {
+            try {
+                return Long.valueOf(record.key());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid key of user event: {}", record.key());
+            }
+        }
+        return record.value() != null ? record.value().getUserId() : null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mymicroservice.orderservice.mapper;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.model.UserProjection;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface UserProjectionMapper {
+
+    UserProjectionMapper INSTANCE = Mappers.getMapper(UserProjectionMapper.class);
+
+    UserDto toDto(UserProjection userProjection);
+}
@@ -1,5 +1,6 @@
 package com.mymicroservice.orderservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -9,8 +10,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -18,6 +23,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -32,10 +40,27 @@ import java.util.Set;
 @ToString(exclude = {"orderItems"})
 @Table(name = "orders")
 @Entity(name = "Order")
+@NamedEntityGraph(name = Order.WITH_ITEMS_GRAPH, attributeNodes = @NamedAttributeNode("orderItems"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Order.CACHE_REGION)
 public class Order {
 
+    /**
+     * Fetch plan that loads orders together with their order items in the same statement.
+     * {@code OrderItem.item} is not part of it: the mapping reads only the item id,
+     * which Hibernate takes from the foreign key without initializing the proxy.
+     */
+    public static final String WITH_ITEMS_GRAPH = "Order.withItems";
+
+    /** Second-level cache regions of orders and of their order item collections. */
+    public static final String CACHE_REGION = "orders";
+    public static final String ORDER_ITEMS_CACHE_REGION = "orders-order-items";
+
+    // pooled sequence allocation (one nextval per 50 IDs) keeps inserts of an order and its items in JDBC batches,
+    // which IDENTITY columns would disable
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_seq")
+    @SequenceGenerator(name = "orders_id_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     @Column(name="id")
     private Long id;
 
@@ -49,6 +74,14 @@ public class Order {
     @Column(name="creation_date")
     private LocalDate creationDate;
 
+    // incremented by every update, including changes of the order items and native status transitions; the ETag of the order
+    @Version
+    @Column(name="version")
+    private Long version;
+
+    // queries that can't use the entity graph (paginated native SQL) initialize the collections of up to 100 orders at once
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Order.ORDER_ITEMS_CACHE_REGION)
     @OneToMany(mappedBy = "order", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<OrderItem> orderItems = new HashSet<>();
 
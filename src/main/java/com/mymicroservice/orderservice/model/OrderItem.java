@@ -1,5 +1,6 @@
 package com.mymicroservice.orderservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -8,12 +9,15 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Builder
 @Getter
@@ -22,10 +26,16 @@ import lombok.Setter;
 @AllArgsConstructor
 @Table(name = "order_items")
 @Entity(name = "OrderItem")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = OrderItem.CACHE_REGION)
 public class OrderItem {
 
+    /** Second-level cache region of order items. */
+    public static final String CACHE_REGION = "order-items";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_id_seq")
+    @SequenceGenerator(name = "order_items_id_seq", sequenceName = "order_items_id_seq", allocationSize = 50)
     @Column(name="id")
     private Long id;
 
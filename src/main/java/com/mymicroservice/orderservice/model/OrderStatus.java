@@ -2,6 +2,9 @@ package com.mymicroservice.orderservice.model;
 
 import lombok.RequiredArgsConstructor;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 @RequiredArgsConstructor
 public enum OrderStatus {
 
@@ -12,4 +15,28 @@ public enum OrderStatus {
     FAILED ("FAILED");
 
     private final String status;
+
+    /**
+     * Transition table: statuses an order may be moved to this status from.
+     * <p>
+     * A payment result may arrive before the order was marked PROCESSING, so PAID and FAILED are
+     * reachable from CREATED. PAID and CANCELLED are final. A late PROCESSING (e.g. after the event
+     * of an already paid order was re-sent) never overwrites a payment result other than FAILED,
+     * which is retried when the order is re-submitted.
+     *
+     * @return allowed source statuses, empty if the status can't be reached by a transition
+     */
+    public Set<OrderStatus> allowedFrom() {
+        return switch (this) {
+            case CREATED -> EnumSet.noneOf(OrderStatus.class);
+            case PROCESSING -> EnumSet.of(CREATED, FAILED);
+            case PAID -> EnumSet.of(CREATED, PROCESSING, FAILED);
+            case FAILED -> EnumSet.of(CREATED, PROCESSING);
+            case CANCELLED -> EnumSet.of(CREATED, PROCESSING, FAILED);
+        };
+    }
+
+    public boolean canTransitionFrom(OrderStatus from) {
+        return allowedFrom().contains(from);
+    }
 }
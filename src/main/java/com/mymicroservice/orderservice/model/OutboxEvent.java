@@ -0,0 +1,70 @@
+package com.mymicroservice.orderservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event waiting to be published to Kafka (transactional outbox).
+ * <p>
+ * The row is inserted in the same transaction as the order it belongs to, so an event exists
+ * if and only if the order was committed. {@code publishedAt} stays {@code null} until the relay
+ * got the broker acknowledgement for the event.
+ */
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(exclude = {"payload"})
+@ToString(exclude = {"payload"})
+@Table(name = "outbox_events")
+@Entity(name = "OutboxEvent")
+public class OutboxEvent {
+
+    public static final String CREATE_ORDER = "CREATE_ORDER";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name="id")
+    private Long id;
+
+    /** ID of the order the event belongs to, also used as the Kafka message key. */
+    @Column(name="aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name="event_type", nullable = false)
+    private String eventType;
+
+    @Column(name="topic", nullable = false)
+    private String topic;
+
+    /** Event serialized as JSON. */
+    @Column(name="payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    /** MDC of the request that created the event, restored as Kafka headers by the relay. */
+    @Column(name="request_id")
+    private String requestId;
+
+    @Column(name="source_service")
+    private String sourceService;
+
+    @Column(name="created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name="published_at")
+    private LocalDateTime publishedAt;
+}
@@ -0,0 +1,51 @@
+package com.mymicroservice.orderservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Local read-only copy of a user of userservice, kept up to date from the compacted user-events topic.
+ * Rows are only written by {@code UserProjectionRepository#upsertAll}; the entity is used for reads.
+ */
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Table(name = "user_projection")
+@Entity(name = "UserProjection")
+public class UserProjection {
+
+    @Id
+    @Column(name="user_id")
+    private Long userId;
+
+    @Column(name="name")
+    private String name;
+
+    @Column(name="surname")
+    private String surname;
+
+    @Column(name="birth_date")
+    private LocalDate birthDate;
+
+    @Column(name="email")
+    private String email;
+
+    @Column(name="updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
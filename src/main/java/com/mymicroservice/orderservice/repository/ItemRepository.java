@@ -1,20 +1,66 @@
 package com.mymicroservice.orderservice.repository;
 
+import com.mymicroservice.orderservice.dto.ItemDto;
 import com.mymicroservice.orderservice.model.Item;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
     List<Item> findAllByIdIn(Set<Long> ids);
 
+    /**
+     * Read-only projection of all items: DTOs are built straight from the result set,
+     * without managed entities, persistence context entries or dirty-check snapshots.
+     *
+     * @return all items as {@link ItemDto} ordered by ID
+     */
+    @Query("SELECT new com.mymicroservice.orderservice.dto.ItemDto(i.id, i.name, i.price, i.version) FROM Item i ORDER BY i.id")
+    List<ItemDto> findAllItemDtos();
+
+    /**
+     * Read-only projection of the items with the given IDs.
+     *
+     * @param ids set of item IDs to search for
+     * @return matching items as {@link ItemDto} ordered by ID
+     */
+    @Query("SELECT new com.mymicroservice.orderservice.dto.ItemDto(i.id, i.name, i.price, i.version) FROM Item i " +
+            "WHERE i.id IN :ids ORDER BY i.id")
+    List<ItemDto> findItemDtosByIdIn(@Param("ids") Set<Long> ids);
+
     @Query(value = "select * from items order by items.id asc", nativeQuery = true)
     Page<Item> findAllItemsNative(Pageable pageable);
+
+    /**
+     * Keyset pagination: retrieves items with ID greater than {@code after}, ordered by ID.
+     */
+    List<Item> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    /**
+     * Streams all items ordered by ID for exports, read-only and with a JDBC fetch size.
+     *
+     * @see OrderRepository#streamAllOrders()
+     * @return stream of items
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM Item i ORDER BY i.id")
+    Stream<Item> streamAllItems();
 }
@@ -1,21 +1,67 @@
 package com.mymicroservice.orderservice.repository;
 
+import com.mymicroservice.orderservice.dto.OrderItemDto;
 import com.mymicroservice.orderservice.model.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     List<OrderItem> findAllByIdIn(Set<Long> ids);
 
+    /**
+     * Read-only projection of all order items. {@code oi.order.id} and {@code oi.item.id}
+     * are read from the foreign key columns, so neither orders nor items are joined.
+     *
+     * @return all order items as {@link OrderItemDto} ordered by ID
+     */
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderItemDto(oi.id, oi.order.id, oi.item.id, oi.quantity) " +
+            "FROM OrderItem oi ORDER BY oi.id")
+    List<OrderItemDto> findAllOrderItemDtos();
+
+    /**
+     * Read-only projection of the order items with the given IDs.
+     *
+     * @param ids set of order item IDs to search for
+     * @return matching order items as {@link OrderItemDto} ordered by ID
+     */
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderItemDto(oi.id, oi.order.id, oi.item.id, oi.quantity) " +
+            "FROM OrderItem oi WHERE oi.id IN :ids ORDER BY oi.id")
+    List<OrderItemDto> findOrderItemDtosByIdIn(@Param("ids") Set<Long> ids);
+
     @Query(value = "select * from order_items order by order_items.id asc", nativeQuery = true)
     Page<OrderItem> findAllOrderItemsNative(Pageable pageable);
 
+    /**
+     * Keyset pagination: retrieves order items with ID greater than {@code after}, ordered by ID.
+     */
+    List<OrderItem> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    /**
+     * Streams all order items ordered by ID for exports, read-only and with a JDBC fetch size.
+     *
+     * @see OrderRepository#streamAllOrders()
+     * @return stream of order items
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT oi FROM OrderItem oi ORDER BY oi.id")
+    Stream<OrderItem> streamAllOrderItems();
 }
@@ -1,19 +1,63 @@
 package com.mymicroservice.orderservice.repository;
 
+import com.mymicroservice.orderservice.dto.OrderDto;
+import com.mymicroservice.orderservice.dto.OrderItemDto;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
 import com.mymicroservice.orderservice.model.Order;
 import com.mymicroservice.orderservice.model.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Queries returning orders that are mapped to {@link com.mymicroservice.orderservice.dto.OrderDto}
+ * use the {@link Order#WITH_ITEMS_GRAPH} fetch plan, so order items are loaded with the orders
+ * in one statement instead of one lazy load per order.
+ * <p>
+ * Read-only list endpoints use the {@code *Dtos} projections instead: orders and their items are read
+ * by two constructor-expression queries with the same filter and joined in memory, so no entities
+ * are hydrated at all.
+ * <p>
+ * Status transitions are implemented in {@link OrderRepositoryCustomImpl}, so they keep the second-level cache
+ * of the orders that aren't touched.
+ */
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    @Override
+    @EntityGraph(Order.WITH_ITEMS_GRAPH)
+    Optional<Order> findById(Long id);
+
+    @Override
+    @EntityGraph(Order.WITH_ITEMS_GRAPH)
+    List<Order> findAll();
+
+    /**
+     * Version-only lookup behind conditional GETs: one indexed column, no entity and no order items.
+     *
+     * @return version of the order, empty if it doesn't exist
+     */
+    @Query("SELECT o.version FROM Order o WHERE o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderStatusChange(o.id, o.userId, o.status, o.version) " +
+            "FROM Order o WHERE o.id = :id")
+    Optional<OrderStatusChange> findStatusById(@Param("id") Long id);
 
     /**
      * Finds all orders with specified IDs using "named method".
@@ -22,6 +66,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @return a list of orders matching the provided IDs (may be empty)
      * @throws IllegalArgumentException if ids set is null
      */
+    @EntityGraph(Order.WITH_ITEMS_GRAPH)
     List<Order> findAllByIdIn(Set<Long> ids);
 
 
@@ -32,6 +77,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param statuses a set of {@link OrderStatus} values to filter the orders by.
      * @return a list of {@link Order} entities whose status matches any in the provided set.
      */
+    @EntityGraph(Order.WITH_ITEMS_GRAPH)
     List<Order> findByStatusIn(Set<OrderStatus> statuses);
 
     /**
@@ -41,13 +87,36 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @return a list of orders belonging to the specified user
      *         (empty list if no orders found)
      */
+    @EntityGraph(Order.WITH_ITEMS_GRAPH)
     @Query("SELECT o FROM Order o WHERE o.userId = :userId")
     List<Order> findOrdersByUserId(@Param("userId") Long userId);
 
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderDto(o.id, o.userId, o.status, o.creationDate, o.version) " +
+            "FROM Order o ORDER BY o.id")
+    List<OrderDto> findAllOrderDtos();
+
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderDto(o.id, o.userId, o.status, o.creationDate, o.version) " +
+            "FROM Order o WHERE o.status IN :statuses ORDER BY o.id")
+    List<OrderDto> findOrderDtosByStatusIn(@Param("statuses") Set<OrderStatus> statuses);
+
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderItemDto(oi.id, o.id, oi.item.id, oi.quantity) " +
+            "FROM OrderItem oi JOIN oi.order o WHERE o.status IN :statuses")
+    List<OrderItemDto> findOrderItemDtosByOrderStatusIn(@Param("statuses") Set<OrderStatus> statuses);
+
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderDto(o.id, o.userId, o.status, o.creationDate, o.version) " +
+            "FROM Order o WHERE o.userId = :userId ORDER BY o.id")
+    List<OrderDto> findOrderDtosByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.mymicroservice.orderservice.dto.OrderItemDto(oi.id, o.id, oi.item.id, oi.quantity) " +
+            "FROM OrderItem oi JOIN oi.order o WHERE o.userId = :userId")
+    List<OrderItemDto> findOrderItemDtosByOrderUserId(@Param("userId") Long userId);
+
     /**
      * Retrieves all orders with pagination support using native SQL.
      * <p>
      * Results are ordered by order ID in ascending order.
+     * Entity graphs don't apply to native queries: order items of the page are initialized
+     * in batches (see {@code @BatchSize} on {@link Order#getOrderItems()}).
      *
      * @param pageable pagination configuration (page number, size, etc.)
      * @return a {@link Page} of orders with pagination information
@@ -56,4 +125,48 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query(value = "select * from orders order by orders.id asc", nativeQuery = true)
     Page<Order> findAllOrdersNative(Pageable pageable);
 
+    /**
+     * Keyset pagination: retrieves orders with ID greater than {@code after}, ordered by ID.
+     * <p>
+     * Uses the primary key index, so the cost of a page doesn't depend on its depth,
+     * and runs no COUNT query. The entity graph isn't used here (a collection fetch can't be
+     * limited in SQL): order items are initialized in batches.
+     *
+     * @param after ID of the last order of the previous page ({@code 0} for the first page)
+     * @param limit maximum number of orders to return
+     * @return orders of the page ordered by ID
+     */
+    List<Order> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    /**
+     * Keyset pagination over the orders of the given user.
+     *
+     * @see #findByIdGreaterThanOrderByIdAsc(Long, Limit)
+     */
+    List<Order> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long after, Limit limit);
+
+    /**
+     * Keyset pagination over the orders with any of the given statuses.
+     *
+     * @see #findByIdGreaterThanOrderByIdAsc(Long, Limit)
+     */
+    List<Order> findByStatusInAndIdGreaterThanOrderByIdAsc(Set<OrderStatus> statuses, Long after, Limit limit);
+
+    /**
+     * Streams all orders ordered by ID for exports.
+     * <p>
+     * Rows are read with a server-side cursor in chunks of the JDBC fetch size instead of being
+     * materialized in a list. Must be consumed inside a transaction (PostgreSQL ignores the fetch size
+     * in auto-commit mode) and closed afterwards. Entities are loaded read-only, so Hibernate keeps
+     * no snapshots for dirty checking. Order items are not fetched here: they are initialized
+     * in batches for the orders currently held in the persistence context.
+     *
+     * @return stream of orders
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    Stream<Order> streamAllOrders();
 }
@@ -0,0 +1,49 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Loads orders by ID through the second-level cache: only orders missing from it are read from the database,
+     * in batches. Order items are initialized on access, from the collection cache as well.
+     *
+     * @return existing orders ordered by ID
+     */
+    List<Order> multiLoadByIdIn(Collection<Long> ids);
+
+    /**
+     * Compare-and-set status transition: moves the order to {@code to} only if its current status
+     * is one of {@code allowedFrom} (see {@link OrderStatus#allowedFrom()}), incrementing its version.
+     * <p>
+     * One statement without a prior read. Concurrent transitions of the same order are serialized
+     * by the row lock of the UPDATE itself and the loser re-evaluates the condition, so a late
+     * transition can't overwrite a status it isn't allowed to leave.
+     *
+     * @return the new status and version of the order (read back by the UPDATE itself) if the transition
+     *         was applied, empty if the order doesn't exist or its status doesn't allow the transition
+     */
+    Optional<OrderStatusChange> transitionStatus(Long id, OrderStatus to, Set<OrderStatus> allowedFrom);
+
+    /**
+     * Compare-and-set transition of many orders with one statement.
+     *
+     * @return the orders the transition was applied to
+     * @see #transitionStatus(Long, OrderStatus, Set)
+     */
+    List<OrderStatusChange> transitionStatusByIdIn(Collection<Long> ids, OrderStatus to, Set<OrderStatus> allowedFrom);
+
+    /**
+     * Records that order items of the orders were written without going through {@code Order.orderItems}:
+     * increments the versions of the orders (their ETags) and invalidates their cached order item collections
+     * when the transaction completes.
+     */
+    void orderItemsChanged(Collection<Long> orderIds);
+}
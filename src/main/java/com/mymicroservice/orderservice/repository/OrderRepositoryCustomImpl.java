@@ -0,0 +1,132 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.CachedDomainDataAccess;
+import org.hibernate.cache.spi.access.CollectionDataAccess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads through the second-level cache and status transitions as native UPDATEs that keep the second-level cache of orders warm.
+ * <p>
+ * A JPQL bulk UPDATE makes Hibernate invalidate the whole {@code orders} region, i.e. every payment event
+ * would drop all cached orders. Here the statement is declared with a query space of its own, so no region
+ * is invalidated wholesale; instead the entries of the addressed orders are soft-locked before the UPDATE
+ * and released when the transaction completes, the same way Hibernate treats an order updated
+ * through the persistence context: until then no load can put the old status back into the cache.
+ */
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    /** Query space of the status transitions and version increments; no cache region depends on it. */
+    static final String STATUS_TRANSITION_SPACE = "orders_status_transition";
+
+    private static final String TRANSITION_SQL =
+            "UPDATE orders SET status = :to, version = version + 1 WHERE id IN (:ids) AND status IN (:allowedFrom)"
+                    + " RETURNING id, user_id, status, version";
+
+    private static final String INCREMENT_VERSION_SQL = "UPDATE orders SET version = version + 1 WHERE id IN (:ids)";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Order> multiLoadByIdIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Order> orders = entityManager.unwrap(Session.class)
+                .byMultipleIds(Order.class)
+                .with(CacheMode.NORMAL)
+                .enableOrderedReturn(false) // missing IDs are left out instead of returned as null
+                .multiLoad(new ArrayList<>(ids));
+        return orders.stream().sorted(Comparator.comparing(Order::getId)).toList();
+    }
+
+    @Override
+    public Optional<OrderStatusChange> transitionStatus(Long id, OrderStatus to, Set<OrderStatus> allowedFrom) {
+        return transitionStatusByIdIn(List.of(id), to, allowedFrom).stream().findFirst();
+    }
+
+    @Override
+    public List<OrderStatusChange> transitionStatusByIdIn(Collection<Long> ids, OrderStatus to, Set<OrderStatus> allowedFrom) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.flush(); // the native statement doesn't trigger an auto-flush of pending changes to orders
+        softLockOrders(session, ids);
+        List<Object[]> rows = session.createNativeQuery(TRANSITION_SQL, Object[].class)
+                .addSynchronizedQuerySpace(STATUS_TRANSITION_SPACE)
+                .setParameter("to", to.name())
+                .setParameterList("ids", ids)
+                .setParameterList("allowedFrom", allowedFrom.stream().map(OrderStatus::name).toList())
+                .getResultList();
+        return rows.stream()
+                .map(row -> new OrderStatusChange(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                        OrderStatus.valueOf((String) row[2]), ((Number) row[3]).longValue()))
+                .toList();
+    }
+
+    @Override
+    public void orderItemsChanged(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.flush();
+        SessionFactoryImplementor factory = session.getFactory();
+        CollectionPersister persister = factory.getMappingMetamodel()
+                .getCollectionDescriptor(Order.class.getName() + ".orderItems");
+        if (persister.hasCache()) {
+            CollectionDataAccess cache = persister.getCacheAccessStrategy();
+            softLockUntilCompletion(session, cache, orderIds,
+                    id -> cache.generateCacheKey(id, persister, factory, session.getTenantIdentifier()));
+        }
+        softLockOrders(session, orderIds);
+        session.createNativeQuery(INCREMENT_VERSION_SQL)
+                .addSynchronizedQuerySpace(STATUS_TRANSITION_SPACE)
+                .setParameterList("ids", orderIds)
+                .executeUpdate();
+    }
+
+    private static void softLockOrders(SessionImplementor session, Collection<Long> ids) {
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Order.class);
+        if (persister.canWriteToCache()) {
+            EntityDataAccess cache = persister.getCacheAccessStrategy();
+            softLockUntilCompletion(session, cache, ids,
+                    id -> cache.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier()));
+        }
+    }
+
+    private static void softLockUntilCompletion(SessionImplementor session, CachedDomainDataAccess cache,
+                                                Collection<Long> ids, Function<Long, Object> cacheKey) {
+        Map<Object, SoftLock> locks = new HashMap<>();
+        for (Long id : new HashSet<>(ids)) { // every lock must be released exactly once
+            Object key = cacheKey.apply(id);
+            locks.put(key, cache.lockItem(session, key, null));
+        }
+        session.getActionQueue().registerProcess((success, completedSession) ->
+                locks.forEach((key, lock) -> cache.unlockItem(completedSession, key, lock)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest unpublished events for the current transaction.
+     * <p>
+     * {@code SKIP LOCKED} makes rows already locked by another relay invisible instead of blocking on them,
+     * so several instances drain disjoint batches of the outbox in parallel.
+     *
+     * @param limit maximum number of events to lock
+     * @return locked events ordered by ID (insertion order)
+     */
+    @Query(value = "SELECT * FROM outbox_events WHERE published_at IS NULL ORDER BY id " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockUnpublishedBatch(@Param("limit") int limit);
+
+    /**
+     * Marks the given events as published with one statement.
+     *
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    /**
+     * Deletes events published before the given moment.
+     *
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * Number of events waiting to be published (served by the partial index on unpublished rows).
+     */
+    long countByPublishedAtIsNull();
+
+    /**
+     * Creation time of the oldest event waiting to be published, empty if the outbox is drained.
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.publishedAt IS NULL")
+    Optional<LocalDateTime> findOldestUnpublishedCreatedAt();
+}
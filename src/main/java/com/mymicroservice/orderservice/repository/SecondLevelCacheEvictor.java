@@ -0,0 +1,54 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Evicts entries of the second-level cache of this instance that were changed on another one.
+ * <p>
+ * Within an instance Hibernate keeps the regions consistent itself (soft locks of {@code READ_WRITE}, see
+ * {@link OrderRepositoryCustomImpl}); the regions are local to each JVM though, so writes committed elsewhere
+ * arrive here as invalidations (see {@link com.mymicroservice.orderservice.kafka.CacheInvalidationListener}
+ * and {@link com.mymicroservice.orderservice.kafka.OrderStatusChangeListener}).
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheEvictor {
+
+    private static final String ORDER_ITEMS_ROLE = Order.class.getName() + ".orderItems";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Evicts the orders and their order item collections.
+     */
+    public void evictOrders(Collection<Long> orderIds) {
+        Cache cache = cache();
+        for (Long orderId : orderIds) {
+            cache.evictEntityData(Order.class, orderId);
+            cache.evictCollectionData(ORDER_ITEMS_ROLE, orderId);
+        }
+    }
+
+    public void evictOrderItems(Collection<Long> orderItemIds) {
+        Cache cache = cache();
+        orderItemIds.forEach(orderItemId -> cache.evictEntityData(OrderItem.class, orderItemId));
+    }
+
+    public void evictItems(Collection<Long> itemIds) {
+        Cache cache = cache();
+        itemIds.forEach(itemId -> cache.evictEntityData(Item.class, itemId));
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
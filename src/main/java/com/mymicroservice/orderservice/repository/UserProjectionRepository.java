@@ -0,0 +1,17 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.model.UserProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserProjectionRepository extends JpaRepository<UserProjection, Long>, UserProjectionRepositoryCustom {
+
+    List<UserProjection> findAllByUserIdIn(Collection<Long> userIds);
+
+    Optional<UserProjection> findFirstByEmail(String email);
+}
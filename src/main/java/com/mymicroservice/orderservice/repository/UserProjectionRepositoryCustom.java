@@ -0,0 +1,15 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+
+import java.util.Collection;
+
+public interface UserProjectionRepositoryCustom {
+
+    /**
+     * Inserts the users or overwrites their rows, in one JDBC batch.
+     *
+     * @param users users with distinct IDs
+     */
+    void upsertAll(Collection<UserDto> users);
+}
@@ -0,0 +1,44 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Upserts with {@code INSERT ... ON CONFLICT DO UPDATE}: JPA would read every row before writing it,
+ * which makes replaying the whole user-events topic on warm-up a read per event.
+ */
+@RequiredArgsConstructor
+public class UserProjectionRepositoryCustomImpl implements UserProjectionRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO user_projection (user_id, name, surname, birth_date, email, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id) DO UPDATE SET
+                name = EXCLUDED.name,
+                surname = EXCLUDED.surname,
+                birth_date = EXCLUDED.birth_date,
+                email = EXCLUDED.email,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<UserDto> users) {
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, users, users.size(), (ps, user) -> {
+            ps.setLong(1, user.getUserId());
+            ps.setString(2, user.getName());
+            ps.setString(3, user.getSurname());
+            ps.setDate(4, user.getBirthDate() != null ? Date.valueOf(user.getBirthDate()) : null);
+            ps.setString(5, user.getEmail());
+            ps.setTimestamp(6, updatedAt);
+        });
+    }
+}
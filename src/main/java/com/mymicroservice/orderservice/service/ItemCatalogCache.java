@@ -0,0 +1,16 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.ItemDto;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ItemCatalogCache {
+
+    Optional<ItemDto> get(Long itemId);
+    Map<Long, ItemDto> getAll(Collection<Long> itemIds);
+    void putAfterCommit(ItemDto item);
+    void invalidateAfterCommit(Long itemId);
+    void invalidate(Collection<Long> itemIds);
+}
@@ -0,0 +1,12 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.util.SerializedResponse;
+
+import java.util.function.Supplier;
+
+public interface ItemResponseCache {
+
+    SerializedResponse get(String key, Supplier<?> body);
+    void invalidateAllAfterCommit();
+    void invalidateAll();
+}
@@ -1,18 +1,22 @@
 package com.mymicroservice.orderservice.service;
 
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.ItemDto;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ItemService {
 
     ItemDto createItem(ItemDto ItemDto);
     ItemDto getItemById(Long itemId);
-    ItemDto updateItem(Long itemId, ItemDto itemDetails);
+    ItemDto updateItem(Long itemId, ItemDto itemDetails, Long expectedVersion);
     ItemDto deleteItem(Long itemId);
     List<ItemDto> getItemsIdIn(Set<Long> ids);
     List<ItemDto> getAllItems();
+    void exportAllItems(Consumer<ItemDto> consumer);
     Page<ItemDto> getAllItemsNativeWithPagination(Integer page, Integer size);
+    CursorPageDto<ItemDto> getAllItemsWithCursor(String after, int limit);
 }
@@ -1,10 +1,12 @@
 package com.mymicroservice.orderservice.service;
 
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface OrderItemService {
 
@@ -14,5 +16,7 @@ public interface OrderItemService {
      OrderItemDto deleteOrderItem(Long orderItemId);
      List<OrderItemDto> getOrderItemsIdIn(Set<Long> ids);
      List<OrderItemDto> getAllOrderItems();
+     void exportAllOrderItems(Consumer<OrderItemDto> consumer);
      Page<OrderItemDto> getAllOrderItemsNativeWithPagination(Integer page, Integer size);
+     CursorPageDto<OrderItemDto> getAllOrderItemsWithCursor(String after, int limit);
 }
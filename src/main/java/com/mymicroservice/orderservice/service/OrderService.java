@@ -1,24 +1,36 @@
 package com.mymicroservice.orderservice.service;
 
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderDto;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.model.OrderStatus;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface OrderService {
 
     OrderWithUserResponse createOrder(OrderDto orderDto);
-    void updateOrderStatus(Long orderId, OrderStatus status);
+    boolean updateOrderStatus(Long orderId, OrderStatus status);
+    int updateOrderStatuses(Map<Long, OrderStatus> statuses);
     OrderWithUserResponse getOrderById(Long orderId);
-    OrderWithUserResponse updateOrder(Long orderId, OrderDto orderDetails);
+    Optional<Long> getOrderVersion(Long orderId);
+    Optional<OrderStatusChange> getOrderStatus(Long orderId);
+    OrderWithUserResponse updateOrder(Long orderId, OrderDto orderDetails, Long expectedVersion);
     OrderDto deleteOrder(Long orderId);
     List<OrderWithUserResponse> getOrdersByUserEmail(String email);
     List<OrderWithUserResponse> getOrdersIdIn(Set<Long> ids);
     List<OrderWithUserResponse> findByStatusIn(Set<OrderStatus> statuses);
     List<OrderWithUserResponse> getAllOrders();
+    void exportAllOrders(Consumer<OrderWithUserResponse> consumer);
     Page<OrderDto> getAllOrdersNativeWithPagination(Integer page, Integer size);
+    CursorPageDto<OrderDto> getAllOrdersWithCursor(String after, int limit);
+    CursorPageDto<OrderWithUserResponse> getOrdersByUserEmailWithCursor(String email, String after, int limit);
+    CursorPageDto<OrderWithUserResponse> findByStatusInWithCursor(Set<OrderStatus> statuses, String after, int limit);
 
 }
@@ -0,0 +1,15 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+public interface OrderStatusStreamService {
+
+    Optional<SseEmitter> subscribeToOrder(Long orderId, Supplier<Optional<OrderStatusChange>> currentStatus);
+    SseEmitter subscribeToUser(Long userId);
+    void dispatch(OrderStatusChange change);
+    int getSubscriberCount();
+}
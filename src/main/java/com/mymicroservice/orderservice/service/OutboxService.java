@@ -0,0 +1,14 @@
+package com.mymicroservice.orderservice.service;
+
+import org.mymicroservices.common.events.OrderEventDto;
+
+import java.time.Duration;
+
+public interface OutboxService {
+
+    void enqueueCreateOrder(OrderEventDto event);
+    int relayBatch(int limit);
+    int purgePublished(Duration retention);
+    long countPending();
+    Duration getLag();
+}
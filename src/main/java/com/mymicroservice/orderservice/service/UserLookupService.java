@@ -0,0 +1,13 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface UserLookupService {
+
+    UserDto getUserById(Long userId);
+    UserDto getUserByEmail(String email);
+    Map<Long, UserDto> getUsersByIds(Set<Long> userIds);
+}
@@ -0,0 +1,20 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public interface UserProjectionService {
+
+    void applyUserEvents(Map<Long, UserDto> users);
+    void partitionsAssigned(Collection<Integer> partitions);
+    void partitionsRevoked(Collection<Integer> partitions);
+    void recordLag(Map<Integer, Long> lagByPartition);
+    boolean isAvailable();
+    Optional<UserDto> findUser(Long userId);
+    Optional<UserDto> findUserByEmail(String email);
+    Map<Long, UserDto> findUsers(Set<? extends Long> userIds);
+}
@@ -0,0 +1,114 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.ItemDto;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.service.ItemCatalogCache;
+import com.mymicroservice.orderservice.util.TransactionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process near-cache of the item catalog keyed by item ID, populated on read: misses of
+ * {@link #getAll(Collection)} are loaded with one query for all missing IDs. Items that don't exist are not cached.
+ * <p>
+ * Writes of {@link ItemServiceImpl} reach the cache only after their transaction committed, so a rolled back
+ * change is never served: created items are put, updated and deleted ones invalidated (invalidating instead of
+ * putting keeps two concurrent updates from leaving the older one cached). Invalidations also reach the caches of
+ * the other instances through the cache-invalidations topic, so they don't keep serving an old price or a deleted item.
+ * A bulk load that read a row just before a concurrent commit may still put the old row, and an invalidation
+ * may get lost; {@code item.cache.ttl} bounds how long either is served.
+ * <p>
+ * Size, hit/miss and eviction statistics are published as {@code cache.*} with {@code cache=items}.
+ */
+@Slf4j
+@Service
+public class ItemCatalogCacheImpl implements ItemCatalogCache {
+
+    private final ItemRepository itemRepository;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final LoadingCache<Long, ItemDto> itemsById;
+
+    public ItemCatalogCacheImpl(ItemRepository itemRepository,
+                                CacheInvalidationPublisher cacheInvalidationPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${item.cache.max-size:10000}") long cacheMaxSize,
+                                @Value("${item.cache.ttl:1m}") Duration cacheTtl) {
+        this.itemRepository = itemRepository;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+        this.itemsById = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build(new ItemCacheLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, itemsById, "items");
+    }
+
+    @Override
+    public Optional<ItemDto> get(Long itemId) {
+        return Optional.ofNullable(itemsById.get(itemId));
+    }
+
+    /**
+     * @return cached or loaded items mapped by their ID; IDs that don't exist are missing from the map
+     */
+    @Override
+    public Map<Long, ItemDto> getAll(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return itemsById.getAll(new HashSet<>(itemIds));
+    }
+
+    @Override
+    public void putAfterCommit(ItemDto item) {
+        TransactionUtil.afterCommit(() -> itemsById.put(item.getId(), item));
+    }
+
+    @Override
+    public void invalidateAfterCommit(Long itemId) {
+        TransactionUtil.afterCommit(() -> itemsById.invalidate(itemId));
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ITEMS, List.of(itemId));
+    }
+
+    /**
+     * Evicts items changed on any instance, see {@link com.mymicroservice.orderservice.kafka.CacheInvalidationListener}.
+     */
+    @Override
+    public void invalidate(Collection<Long> itemIds) {
+        itemsById.invalidateAll(itemIds);
+    }
+
+    private class ItemCacheLoader implements CacheLoader<Long, ItemDto> {
+
+        @Override
+        public ItemDto load(Long itemId) {
+            List<ItemDto> items = itemRepository.findItemDtosByIdIn(Set.of(itemId));
+            return items.isEmpty() ? null : items.get(0);
+        }
+
+        @Override
+        public Map<Long, ItemDto> loadAll(Set<? extends Long> itemIds) {
+            log.debug("Loading {} items missing from the item cache", itemIds.size());
+            return itemRepository.findItemDtosByIdIn(new HashSet<>(itemIds)).stream()
+                    .collect(Collectors.toMap(ItemDto::getId, Function.identity()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
+import com.mymicroservice.orderservice.util.SerializedResponse;
+import com.mymicroservice.orderservice.util.TransactionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Already-serialized responses of the item catalog endpoints, keyed by endpoint and page, so a repeated request
+ * costs a byte array copy (or a 304) instead of a query, mapping and JSON serialization.
+ * <p>
+ * Any write of {@link ItemServiceImpl} invalidates all responses after its transaction committed, on this instance
+ * right away and on the others through the cache-invalidations topic. Keys carry a generation bumped by each
+ * invalidation: a response built from rows read before the commit is stored under the previous generation
+ * and never served afterwards. An invalidation lost on its way to another instance leaves it serving the old
+ * responses, with their strong ETags, for at most {@code item.response-cache.ttl}.
+ * <p>
+ * Size, hit/miss and eviction statistics are published as {@code cache.*} with {@code cache=item-responses}.
+ */
+@Slf4j
+@Service
+public class ItemResponseCacheImpl implements ItemResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+    private final boolean gzip;
+    private final Cache<String, SerializedResponse> responses;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ItemResponseCacheImpl(ObjectMapper objectMapper,
+                                 CacheInvalidationPublisher cacheInvalidationPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${item.response-cache.max-size:1000}") long cacheMaxSize,
+                                 @Value("${item.response-cache.ttl:1m}") Duration cacheTtl,
+                                 @Value("${item.response-cache.gzip:true}") boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+        this.gzip = gzip;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "item-responses");
+    }
+
+    /**
+     * @param key  endpoint and its parameters, e.g. {@code paginated?page=0&size=10}
+     * @param body loads the response body on a miss; concurrent misses of a key load it once
+     */
+    @Override
+    public SerializedResponse get(String key, Supplier<?> body) {
+        return responses.get(generation.get() + ":" + key, k -> serialize(k, body.get()));
+    }
+
+    @Override
+    public void invalidateAllAfterCommit() {
+        TransactionUtil.afterCommit(this::invalidateAll);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ITEM_RESPONSES);
+    }
+
+    /**
+     * Drops all responses, also when the items were changed on another instance
+     * (see {@link com.mymicroservice.orderservice.kafka.CacheInvalidationListener}).
+     */
+    @Override
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    private SerializedResponse serialize(String key, Object body) {
+        try {
+            SerializedResponse response = SerializedResponse.of(objectMapper.writeValueAsBytes(body), gzip);
+            log.debug("Cached item response {}: {} bytes", key, response.json().length);
+            return response;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
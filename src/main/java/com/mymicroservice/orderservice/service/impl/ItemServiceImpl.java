@@ -1,22 +1,39 @@
 package com.mymicroservice.orderservice.service.impl;
 
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.ItemDto;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
 import com.mymicroservice.orderservice.mapper.ItemMapper;
 import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.OrderItem;
 import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.service.ItemCatalogCache;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
 import com.mymicroservice.orderservice.service.ItemService;
+import com.mymicroservice.orderservice.util.CursorUtil;
+import com.mymicroservice.orderservice.util.ETagUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -24,6 +41,14 @@ import java.util.Set;
 public class ItemServiceImpl implements ItemService {
 
     private final ItemRepository itemRepository;
+    private final EntityManager entityManager;
+    private final ItemCatalogCache itemCatalogCache;
+    private final ItemResponseCache itemResponseCache;
+    private final OrderRepository orderRepository;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    /** Number of entities kept in the persistence context before it is cleared during an export. */
+    private static final int EXPORT_CHUNK_SIZE = 500;
 
     @Override
     @Transactional
@@ -31,55 +56,109 @@ public class ItemServiceImpl implements ItemService {
         Item item = ItemMapper.INSTANCE.toEntity(ItemDto);
         log.info("createItem(): {}",item);
         item = itemRepository.save(item);
-        return ItemMapper.INSTANCE.toDto(item);
+        ItemDto createdItem = ItemMapper.INSTANCE.toDto(item);
+        itemCatalogCache.putAfterCommit(createdItem);
+        itemResponseCache.invalidateAllAfterCommit();
+        return createdItem;
     }
 
+    /**
+     * Served from the item cache; no transaction, so a cache hit doesn't take a connection from the pool.
+     */
     @Override
-    @Transactional(readOnly = true)
     public ItemDto getItemById(Long itemId) {
-        Optional<Item> itemFromDb = Optional.ofNullable(itemRepository.findById(itemId)
-                .orElseThrow(() -> new ItemNotFoundException("Item wasn't found with id " + itemId)));
+        ItemDto item = itemCatalogCache.get(itemId)
+                .orElseThrow(() -> new ItemNotFoundException("Item wasn't found with id " + itemId));
         log.info("getItemsById(): {}",itemId);
-        return ItemMapper.INSTANCE.toDto(itemFromDb.get());
+        return item;
     }
 
+    /**
+     * @param expectedVersion version from {@code If-Match}, {@code null} to update whatever the current version is
+     * @throws VersionMismatchException if the item was modified since the client read it
+     */
     @Override
     @Transactional
-    public ItemDto updateItem(Long itemId, ItemDto itemDetails) {
+    public ItemDto updateItem(Long itemId, ItemDto itemDetails, Long expectedVersion) {
         Optional<Item> itemFromDb = Optional.ofNullable(itemRepository.findById(itemId)
                 .orElseThrow(() -> new ItemNotFoundException("Item wasn't found with id " + itemId)));
         Item item = itemFromDb.get();
+        ETagUtil.checkVersion(expectedVersion, item.getVersion(), "Item with id " + itemId);
         item.setName(itemDetails.getName());
         item.setPrice(itemDetails.getPrice());
         log.info("updateItem(): {}",item);
         itemRepository.save(item);
+        entityManager.flush(); // increments the version returned as the new ETag
+        itemCatalogCache.invalidateAfterCommit(itemId);
+        itemResponseCache.invalidateAllAfterCommit();
         return ItemMapper.INSTANCE.toDto(item);
     }
 
+    /**
+     * Order items of the item are deleted with it (cascade), so the orders they belonged to are invalidated
+     * in the caches of all instances. Their versions are incremented in this transaction: the ETag of such
+     * an order changes and a conditional GET no longer answers 304 with the deleted order items.
+     */
     @Override
     @Transactional
     public ItemDto deleteItem(Long itemId) {
         Optional<Item> itemFromDb = Optional.ofNullable(itemRepository.findById(itemId)
                 .orElseThrow(() -> new ItemNotFoundException("Item wasn't found with id " + itemId)));
+        Set<OrderItem> orderItems = itemFromDb.get().getOrderItems();
+        List<Long> orderItemIds = orderItems.stream().map(OrderItem::getId).toList();
+        List<Long> orderIds = orderItems.stream()
+                .map(orderItem -> orderItem.getOrder() != null ? orderItem.getOrder().getId() : null)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
         itemRepository.deleteById(itemId);
+        orderRepository.orderItemsChanged(orderIds);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, orderItemIds);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDERS, orderIds);
+        itemCatalogCache.invalidateAfterCommit(itemId);
+        itemResponseCache.invalidateAllAfterCommit();
         log.info("deleteItem(): {}",itemId);
         return ItemMapper.INSTANCE.toDto(itemFromDb.get());
     }
 
+    /**
+     * Served from the item cache, items missing from it are loaded with one query. Sorted by ID as before.
+     */
     @Override
-    @Transactional(readOnly = true)
     public List <ItemDto> getItemsIdIn(Set<Long> ids) {
-        List<Item> itemList = itemRepository.findAllByIdIn(ids);
+        List<ItemDto> itemList = itemCatalogCache.getAll(ids).values().stream()
+                .sorted(Comparator.comparing(ItemDto::getId))
+                .toList();
         log.info("getItemsIdIn()");
-        return itemList.stream().map(ItemMapper.INSTANCE::toDto).toList();
+        return itemList;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List <ItemDto> getAllItems() {
-        List<Item> itemList = itemRepository.findAll();
+        List<ItemDto> itemList = itemRepository.findAllItemDtos();
         log.info("getAllItems()");
-        return itemList.stream().map(ItemMapper.INSTANCE::toDto).toList();
+        return itemList;
+    }
+
+    /**
+     * Streams all items to the consumer without materializing them in a list.
+     * Entities are read from a database cursor and the persistence context is cleared
+     * every {@link #EXPORT_CHUNK_SIZE} rows, so memory use doesn't depend on the table size.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllItems(Consumer<ItemDto> consumer) {
+        log.info("exportAllItems()");
+        try (Stream<Item> stream = itemRepository.streamAllItems()) {
+            int count = 0;
+            for (Iterator<Item> it = stream.iterator(); it.hasNext(); ) {
+                consumer.accept(ItemMapper.INSTANCE.toDto(it.next()));
+                if (++count % EXPORT_CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
 
     @Override
@@ -90,4 +169,13 @@ public class ItemServiceImpl implements ItemService {
         log.info("findAllItemsNativeWithPagination()");
         return itemList.map(ItemMapper.INSTANCE::toDto);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<ItemDto> getAllItemsWithCursor(String after, int limit) {
+        List<Item> itemList = itemRepository.findByIdGreaterThanOrderByIdAsc(CursorUtil.decode(after), Limit.of(limit + 1));
+        log.info("getAllItemsWithCursor(): {} rows", itemList.size());
+        return CursorUtil.toPage(itemList, limit, Item::getId,
+                items -> items.stream().map(ItemMapper.INSTANCE::toDto).toList());
+    }
 }
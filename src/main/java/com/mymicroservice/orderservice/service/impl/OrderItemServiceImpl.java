@@ -1,9 +1,12 @@
 package com.mymicroservice.orderservice.service.impl;
 
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
 import com.mymicroservice.orderservice.mapper.OrderItemMapper;
 import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
@@ -12,17 +15,24 @@ import com.mymicroservice.orderservice.repository.ItemRepository;
 import com.mymicroservice.orderservice.repository.OrderItemRepository;
 import com.mymicroservice.orderservice.repository.OrderRepository;
 import com.mymicroservice.orderservice.service.OrderItemService;
+import com.mymicroservice.orderservice.util.CursorUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -32,6 +42,11 @@ public class OrderItemServiceImpl implements OrderItemService {
     private final OrderItemRepository orderItemRepository;
     private final ItemRepository itemRepository;
     private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    /** Number of entities kept in the persistence context before it is cleared during an export. */
+    private static final int EXPORT_CHUNK_SIZE = 500;
 
     @Override
     @Transactional
@@ -39,6 +54,7 @@ public class OrderItemServiceImpl implements OrderItemService {
         OrderItem orderItem = OrderItemMapper.INSTANCE.toEntity(orderItemDto);
         log.info("createOrderItem(): {}", orderItem);
         orderItem = orderItemRepository.save(orderItem);
+        orderItemsChanged(orderItemDto.getOrderId());
         return OrderItemMapper.INSTANCE.toDto(orderItem);
     }
 
@@ -57,6 +73,7 @@ public class OrderItemServiceImpl implements OrderItemService {
         Optional<OrderItem> orderItemFromDb = Optional.ofNullable(orderItemRepository.findById(orderItemId)
                 .orElseThrow(() -> new OrderItemNotFoundException("OrderItem wasn't found with id " + orderItemId)));
         OrderItem orderItem = orderItemFromDb.get();
+        Long previousOrderId = orderIdOf(orderItem);
         orderItem.setQuantity(orderItemDetails.getQuantity());
 
         Optional<Order> orderFromDb = Optional.ofNullable(orderRepository.findById(orderItemDetails.getOrderId())
@@ -69,6 +86,8 @@ public class OrderItemServiceImpl implements OrderItemService {
 
         log.info("updateOrderItem(): {}", orderItem);
         orderItemRepository.save(orderItem);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, List.of(orderItemId));
+        orderItemsChanged(previousOrderId, orderItemDetails.getOrderId());
         return OrderItemMapper.INSTANCE.toDto(orderItem);
     }
 
@@ -78,6 +97,8 @@ public class OrderItemServiceImpl implements OrderItemService {
         Optional<OrderItem> orderItemFromDb = Optional.ofNullable(orderItemRepository.findById(orderItemId)
                 .orElseThrow(() -> new OrderItemNotFoundException("OrderItem wasn't found with id " + orderItemId)));
         orderItemRepository.deleteById(orderItemId);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, List.of(orderItemId));
+        orderItemsChanged(orderIdOf(orderItemFromDb.get()));
         log.info("deleteOrderItem(): {}", orderItemId);
         return OrderItemMapper.INSTANCE.toDto(orderItemFromDb.get());
     }
@@ -85,17 +106,36 @@ public class OrderItemServiceImpl implements OrderItemService {
     @Override
     @Transactional(readOnly = true)
     public List<OrderItemDto> getOrderItemsIdIn(Set<Long> ids) {
-        List <OrderItem> orderItemList = orderItemRepository.findAllByIdIn(ids);
+        List<OrderItemDto> orderItemList = orderItemRepository.findOrderItemDtosByIdIn(ids);
         log.info("getOrderItemsIdIn()");
-        return orderItemList.stream().map(OrderItemMapper.INSTANCE::toDto).toList();
+        return orderItemList;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<OrderItemDto> getAllOrderItems() {
-        List <OrderItem> orderItemList = orderItemRepository.findAll();
+        List<OrderItemDto> orderItemList = orderItemRepository.findAllOrderItemDtos();
         log.info("getAllOrderItems()");
-        return orderItemList.stream().map(OrderItemMapper.INSTANCE::toDto).toList();
+        return orderItemList;
+    }
+
+    /**
+     * Streams all order items to the consumer from a database cursor,
+     * clearing the persistence context every {@link #EXPORT_CHUNK_SIZE} rows.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllOrderItems(Consumer<OrderItemDto> consumer) {
+        log.info("exportAllOrderItems()");
+        try (Stream<OrderItem> stream = orderItemRepository.streamAllOrderItems()) {
+            int count = 0;
+            for (Iterator<OrderItem> it = stream.iterator(); it.hasNext(); ) {
+                consumer.accept(OrderItemMapper.INSTANCE.toDto(it.next()));
+                if (++count % EXPORT_CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
 
     @Override
@@ -106,4 +146,28 @@ public class OrderItemServiceImpl implements OrderItemService {
         log.info("findAllOrderItemsNativeWithPagination()");
         return orderItemList.map(OrderItemMapper.INSTANCE::toDto);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<OrderItemDto> getAllOrderItemsWithCursor(String after, int limit) {
+        List<OrderItem> orderItemList = orderItemRepository.findByIdGreaterThanOrderByIdAsc(CursorUtil.decode(after), Limit.of(limit + 1));
+        log.info("getAllOrderItemsWithCursor(): {} rows", orderItemList.size());
+        return CursorUtil.toPage(orderItemList, limit, OrderItem::getId,
+                orderItems -> orderItems.stream().map(OrderItemMapper.INSTANCE::toDto).toList());
+    }
+
+    /**
+     * Order items are written here without going through {@code Order.orderItems}, so the versions of
+     * their orders are incremented and their cached order item collections invalidated explicitly,
+     * on this instance and, after commit, on the others.
+     */
+    private void orderItemsChanged(Long... orderIds) {
+        List<Long> changedOrderIds = Stream.of(orderIds).filter(Objects::nonNull).distinct().toList();
+        orderRepository.orderItemsChanged(changedOrderIds);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDERS, changedOrderIds);
+    }
+
+    private static Long orderIdOf(OrderItem orderItem) {
+        return orderItem.getOrder() != null ? orderItem.getOrder().getId() : null;
+    }
 }
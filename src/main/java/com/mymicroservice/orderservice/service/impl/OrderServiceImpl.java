@@ -1,36 +1,66 @@
 package com.mymicroservice.orderservice.service.impl;
 
-import com.mymicroservice.orderservice.client.UserClient;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
+import com.mymicroservice.orderservice.dto.ItemDto;
 import com.mymicroservice.orderservice.dto.OrderDto;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.dto.UserDto;
 import org.mymicroservices.common.events.OrderEventDto;
+import com.mymicroservice.orderservice.exception.InvalidStatusTransitionException;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderAlreadyPaidException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
-import com.mymicroservice.orderservice.kafka.OrderEventProducer;
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.kafka.OrderStatusChangePublisher;
 import com.mymicroservice.orderservice.mapper.OrderMapper;
 import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
 import com.mymicroservice.orderservice.model.OrderItem;
 import com.mymicroservice.orderservice.model.OrderStatus;
-import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.repository.OrderItemRepository;
 import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.service.ItemCatalogCache;
 import com.mymicroservice.orderservice.service.OrderService;
+import com.mymicroservice.orderservice.service.OutboxService;
+import com.mymicroservice.orderservice.service.UserLookupService;
+import com.mymicroservice.orderservice.util.CursorUtil;
+import com.mymicroservice.orderservice.util.ETagUtil;
+import com.mymicroservice.orderservice.util.ScopedTaskFactory;
+import com.mymicroservice.orderservice.util.ScopedTasks;
+import com.mymicroservice.orderservice.util.UserEnrichment;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -38,61 +68,186 @@ import java.util.Set;
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
-    private final ItemRepository itemRepository;
-    private final UserClient userClient;
-    private final OrderEventProducer orderEventProducer;
+    private final OrderItemRepository orderItemRepository;
+    private final ItemCatalogCache itemCatalogCache;
+    private final UserLookupService userLookupService;
+    private final OutboxService outboxService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("readOnlyTransactionTemplate")
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ScopedTaskFactory scopedTaskFactory;
+    private final OrderStatusChangePublisher orderStatusChangePublisher;
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
 
+    /** Number of orders enriched with users and then detached at once during an export. */
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    /** Foreign key of {@code order_items.item_id}, see the changelog of the order_items table. */
+    static final String ORDER_ITEM_ITEM_FK = "fk_orderitem_item";
+
+    /**
+     * Creates the order in a short transaction that only covers the inserts.
+     * The user is resolved concurrently with item resolution, so the latency is close to
+     * max(items, userservice) rather than their sum. Both complete before the transaction starts:
+     * no connection or inserted row waits for userservice, and an unknown user fails the request
+     * before anything is written. The event for PaymentService is written to the outbox
+     * in the same transaction and published by the outbox relay after commit.
+     */
     @Override
-    @Transactional
     public OrderWithUserResponse createOrder(OrderDto orderDto) {
-        Order order = OrderMapper.INSTANCE.toEntity(orderDto);
-        log.info("createOrder(): {}", order);
-        order.setCreationDate(LocalDate.now());
-        order.setStatus(OrderStatus.CREATED);
-
-        if (order.getOrderItems() != null) {
-            for (OrderItem orderItem : order.getOrderItems()) {
-                Item fullItem = itemRepository.findById(orderItem.getItem().getId())
-                        .orElseThrow(() -> new ItemNotFoundException("Item not found: " + orderItem.getItem().getId()));
-                orderItem.setItem(fullItem);
-                orderItem.setOrder(order);
-            }
-        }
+        try (ScopedTasks scope = scopedTaskFactory.open()) {
+            Supplier<UserDto> user = scope.fork(() -> userLookupService.getUserById(orderDto.getUserId()));
 
-        order = orderRepository.save(order);
+            Order order = OrderMapper.INSTANCE.toEntity(orderDto);
+            Map<Long, ItemDto> itemsById = order.getOrderItems() != null
+                    ? findItemsByIds(order.getOrderItems().stream().map(orderItem -> orderItem.getItem().getId()).toList())
+                    : Map.of();
 
-        OrderDto orderDtoFromDb = OrderMapper.INSTANCE.toDto(order);
+            scope.join(); // the order must not be written for a user that doesn't exist
 
-        log.info("BEFORE calling userClient.getUserById({})", orderDto.getUserId());
-        UserDto userDtoFromUserService = userClient.getUserById(orderDto.getUserId());
-        log.info("AFTER calling userClient.getUserById({})", userDtoFromUserService.getUserId());
+            OrderDto createdOrder = transactionTemplate.execute(status -> {
+                log.info("createOrder(): {}", order);
+                order.setCreationDate(LocalDate.now());
+                order.setStatus(OrderStatus.CREATED);
 
-        // Send event to PaymentService
-        OrderEventDto event = createOrderEvent(order);
-        // sending with a callback, the status update will be performed after successful sending
-        orderEventProducer.sendCreateOrder(event, () -> {
-            updateOrderStatus(orderDtoFromDb.getId(), OrderStatus.PROCESSING);
-        });
-        return new OrderWithUserResponse(orderDtoFromDb, userDtoFromUserService);
+                if (order.getOrderItems() != null) {
+                    for (OrderItem orderItem : order.getOrderItems()) {
+                        orderItem.setItem(entityManager.getReference(Item.class, orderItem.getItem().getId()));
+                        orderItem.setOrder(order);
+                    }
+                }
+
+                Order savedOrder = orderRepository.save(order);
+                flushOrderItems(itemsById.keySet());
+                outboxService.enqueueCreateOrder(createOrderEvent(savedOrder, itemsById));
+                return OrderMapper.INSTANCE.toDto(savedOrder);
+            });
+
+            return new OrderWithUserResponse(createdOrder, user.get());
+        }
     }
 
+    /**
+     * Moves the order to the given status if the transition table allows it
+     * (see {@link OrderStatus#allowedFrom()}), with one conditional UPDATE and no read.
+     * An applied transition is published to the status stream after commit.
+     *
+     * @return {@code true} if the status was changed, {@code false} if the order doesn't exist
+     *         or its current status doesn't allow the transition
+     */
     @Override
     @Transactional
-    public void updateOrderStatus(Long orderId, OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order wasn't found with id " + orderId));
-        order.setStatus(status);
-        orderRepository.save(order);
-        log.info("Order with id {} was updated with status {}", orderId, status);
+    public boolean updateOrderStatus(Long orderId, OrderStatus status) {
+        Set<OrderStatus> allowedFrom = status.allowedFrom();
+        Optional<OrderStatusChange> change = allowedFrom.isEmpty()
+                ? Optional.empty()
+                : orderRepository.transitionStatus(orderId, status, allowedFrom);
+        boolean applied = change.isPresent();
+        if (applied) {
+            orderStatusChangePublisher.publishAfterCommit(List.of(change.get()));
+            log.info("Order with id {} was updated with status {}", orderId, status);
+        } else {
+            log.warn("Order with id {} wasn't updated with status {}: it doesn't exist or its status doesn't allow the transition",
+                    orderId, status);
+        }
+        return applied;
     }
 
-    private OrderEventDto createOrderEvent(Order order) {
+    /**
+     * Applies many status changes in one transaction: orders are grouped by their new status
+     * and each group is moved with one conditional UPDATE (see {@link #updateOrderStatus(Long, OrderStatus)}),
+     * without loading the orders. Applied transitions are published to the status stream after commit.
+     *
+     * @param statuses new status per order ID
+     * @return number of updated orders
+     */
+    @Override
+    @Transactional
+    public int updateOrderStatuses(Map<Long, OrderStatus> statuses) {
+        Map<OrderStatus, List<Long>> idsByStatus = statuses.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        List<OrderStatusChange> changes = new ArrayList<>();
+        for (Map.Entry<OrderStatus, List<Long>> entry : idsByStatus.entrySet()) {
+            Set<OrderStatus> allowedFrom = entry.getKey().allowedFrom();
+            if (!allowedFrom.isEmpty()) {
+                changes.addAll(orderRepository.transitionStatusByIdIn(entry.getValue(), entry.getKey(), allowedFrom));
+            }
+        }
+        orderStatusChangePublisher.publishAfterCommit(changes);
+        int updated = changes.size();
+        if (updated < statuses.size()) {
+            log.warn("updateOrderStatuses(): {} of {} orders weren't found or didn't allow the transition",
+                    statuses.size() - updated, statuses.size());
+        }
+        log.info("updateOrderStatuses(): {} orders updated", updated);
+        return updated;
+    }
+
+    /**
+     * Resolves all items referenced by an order from the item cache; items missing from it are loaded with one query.
+     * The order items then link to the items by reference ({@link EntityManager#getReference}), without a SELECT.
+     *
+     * @param itemIds IDs of the referenced items (may contain duplicates)
+     * @return items mapped by their ID
+     * @throws ItemNotFoundException listing every ID that doesn't exist
+     */
+    private Map<Long, ItemDto> findItemsByIds(Collection<Long> itemIds) {
+        Set<Long> ids = new HashSet<>(itemIds);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, ItemDto> itemsById = itemCatalogCache.getAll(ids);
+        if (itemsById.size() != ids.size()) {
+            List<Long> missing = ids.stream().filter(id -> !itemsById.containsKey(id)).sorted().toList();
+            throw new ItemNotFoundException("Items not found: " + missing);
+        }
+        return itemsById;
+    }
+
+    /**
+     * Flushes the inserts of order items. Their items were resolved from the item cache, so one of them may have been
+     * deleted since; its foreign key then fails the insert, which is reported like an item that wasn't found.
+     *
+     * @param itemIds IDs of the items the order items link to
+     * @throws ItemNotFoundException if an item was deleted meanwhile
+     */
+    private void flushOrderItems(Collection<Long> itemIds) {
+        try {
+            entityManager.flush();
+        } catch (RuntimeException e) {
+            if (isConstraintViolation(e, ORDER_ITEM_ITEM_FK)) {
+                throw new ItemNotFoundException("Item not found, deleted meanwhile: one of " + itemIds.stream().sorted().toList());
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable e, String constraintName) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return constraintName.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    private static List<Long> orderItemIds(Order order) {
+        return order.getOrderItems().stream().map(OrderItem::getId).toList();
+    }
+
+    /**
+     * Builds the event for PaymentService. Prices are taken from the items resolved for the order,
+     * so the calculation doesn't initialize item proxies one by one.
+     */
+    private OrderEventDto createOrderEvent(Order order, Map<Long, ItemDto> itemsById) {
         OrderEventDto orderEvent = new OrderEventDto();
         orderEvent.setOrderId(order.getId().toString());
         orderEvent.setUserId(order.getUserId().toString());
 
         BigDecimal paymentAmount = order.getOrderItems().stream()
-                .map(item -> item.getItem().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .map(item -> itemsById.get(item.getItem().getId()).getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         orderEvent.setPaymentAmount(paymentAmount);
@@ -100,60 +255,111 @@ public class OrderServiceImpl implements OrderService {
         return orderEvent;
     }
 
+    /**
+     * Not transactional: {@code findById} loads the order with its items in one statement,
+     * so the connection is already returned to the pool when userservice is called.
+     * While userservice is unavailable the order is returned without its user (see {@link UserEnrichment}).
+     */
     @Override
-    @Transactional(readOnly = true)
     public OrderWithUserResponse getOrderById(Long orderId) {
         Optional<Order> orderFromDb = Optional.ofNullable(orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order wasn't found with id " + orderId)));
         log.info("getOrdersById(): {}",orderId);
         OrderDto orderDtoFromDb=OrderMapper.INSTANCE.toDto(orderFromDb.get());
-        UserDto userDtoFromUserService = userClient.getUserById(orderDtoFromDb.getUserId());
+        UserDto userDtoFromUserService = null;
+        try {
+            userDtoFromUserService = userLookupService.getUserById(orderDtoFromDb.getUserId());
+        } catch (UserServiceUnavailableException e) {
+            log.warn("getOrderById(): order {} is returned without user: {}", orderId, e.getMessage());
+            UserEnrichment.markSkipped();
+        }
         return new OrderWithUserResponse (orderDtoFromDb, userDtoFromUserService);
     }
 
+    /**
+     * Current version of the order without loading it, so a conditional GET whose ETag still matches
+     * is answered without the order items and without calling userservice.
+     */
     @Override
-    @Transactional
-    public OrderWithUserResponse updateOrder(Long orderId, OrderDto orderDetails) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order wasn't found with id " + orderId));
-
-        if (order.getStatus().equals(OrderStatus.PAID)) {
-            throw new OrderAlreadyPaidException("Order with id " + orderId + " is already PAID and cannot be modified");
-        }
-        order.setUserId(orderDetails.getUserId());
-        if (orderDetails.getStatus() == null)
-            order.setStatus(order.getStatus());
-        else
-            order.setStatus(orderDetails.getStatus());
+    @Transactional(readOnly = true)
+    public Optional<Long> getOrderVersion(Long orderId) {
+        return orderRepository.findVersionById(orderId);
+    }
 
-        if (orderDetails.getOrderItems() != null && !orderDetails.getOrderItems().isEmpty()) {
-            order.getOrderItems().clear();
+    /**
+     * Current status and version of the order, sent as the first event of a status stream.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<OrderStatusChange> getOrderStatus(Long orderId) {
+        return orderRepository.findStatusById(orderId);
+    }
 
-            for (OrderItemDto orderItemDto : orderDetails.getOrderItems()) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(order);
+    /**
+     * Updates the order in a short transaction, see {@link #createOrder(OrderDto)}.
+     *
+     * @param expectedVersion version from {@code If-Match}, {@code null} to update whatever the current version is
+     * @throws VersionMismatchException if the order was modified since the client read it
+     * @throws InvalidStatusTransitionException if the new status isn't reachable from the current one
+     *                                          (see {@link OrderStatus#allowedFrom()})
+     */
+    @Override
+    public OrderWithUserResponse updateOrder(Long orderId, OrderDto orderDetails, Long expectedVersion) {
+        UserDto userDtoFromUserService = userLookupService.getUserById(orderDetails.getUserId());
 
-                Item item = itemRepository.findById(orderItemDto.getItemId())
-                        .orElseThrow(() -> new ItemNotFoundException("Item not found: " + orderItemDto.getItemId()));
-                orderItem.setItem(item);
+        OrderDto updatedOrderDto = transactionTemplate.execute(status -> {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order wasn't found with id " + orderId));
+            ETagUtil.checkVersion(expectedVersion, order.getVersion(), "Order with id " + orderId);
 
-                orderItem.setQuantity(orderItemDto.getQuantity());
-                order.getOrderItems().add(orderItem);
+            if (order.getStatus().equals(OrderStatus.PAID)) {
+                throw new OrderAlreadyPaidException("Order with id " + orderId + " is already PAID and cannot be modified");
             }
-        }
+            OrderStatus previousStatus = order.getStatus();
+            if (orderDetails.getStatus() != null && orderDetails.getStatus() != previousStatus
+                    && !orderDetails.getStatus().canTransitionFrom(previousStatus)) {
+                throw new InvalidStatusTransitionException("Order with id " + orderId + " can't be moved from "
+                        + previousStatus + " to " + orderDetails.getStatus());
+            }
+            order.setUserId(orderDetails.getUserId());
+            if (orderDetails.getStatus() == null)
+                order.setStatus(order.getStatus());
+            else
+                order.setStatus(orderDetails.getStatus());
 
-        log.info("updateOrder(): {}", order);
-        Order updatedOrder = orderRepository.save(order);
-        OrderDto orderDtoFromDb = OrderMapper.INSTANCE.toDto(updatedOrder);
-        UserDto userDtoFromUserService = userClient.getUserById(orderDtoFromDb.getUserId());
+            Map<Long, ItemDto> itemsById;
+            if (orderDetails.getOrderItems() != null && !orderDetails.getOrderItems().isEmpty()) {
+                itemsById = findItemsByIds(orderDetails.getOrderItems().stream().map(OrderItemDto::getItemId).toList());
+                // the replaced order items are deleted, other instances may still have them cached
+                cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, orderItemIds(order));
+                order.getOrderItems().clear();
 
-        // Send event to PaymentService
-        OrderEventDto event = createOrderEvent(order);
-        // sending with a callback, the status update will be performed after successful sending
-        orderEventProducer.sendCreateOrder(event, () -> {
-            updateOrderStatus(orderDtoFromDb.getId(), OrderStatus.PROCESSING);
+                for (OrderItemDto orderItemDto : orderDetails.getOrderItems()) {
+                    OrderItem orderItem = new OrderItem();
+                    orderItem.setOrder(order);
+                    orderItem.setItem(entityManager.getReference(Item.class, orderItemDto.getItemId()));
+
+                    orderItem.setQuantity(orderItemDto.getQuantity());
+                    order.getOrderItems().add(orderItem);
+                }
+            } else {
+                // items are kept: resolve the current ones for the payment amount
+                itemsById = findItemsByIds(order.getOrderItems().stream().map(orderItem -> orderItem.getItem().getId()).toList());
+            }
+
+            log.info("updateOrder(): {}", order);
+            Order updatedOrder = orderRepository.save(order);
+            flushOrderItems(itemsById.keySet()); // increments the version returned as the new ETag
+            outboxService.enqueueCreateOrder(createOrderEvent(order, itemsById));
+            cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(orderId));
+            if (updatedOrder.getStatus() != previousStatus) {
+                orderStatusChangePublisher.publishAfterCommit(List.of(new OrderStatusChange(updatedOrder.getId(),
+                        updatedOrder.getUserId(), updatedOrder.getStatus(), updatedOrder.getVersion())));
+            }
+            return OrderMapper.INSTANCE.toDto(updatedOrder);
         });
-        return new OrderWithUserResponse(orderDtoFromDb, userDtoFromUserService);
+
+        return new OrderWithUserResponse(updatedOrderDto, userDtoFromUserService);
     }
     
     @Override
@@ -162,47 +368,76 @@ public class OrderServiceImpl implements OrderService {
         Optional<Order> orderFromDb = Optional.ofNullable(orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order wasn't found with id " + orderId)));
         orderRepository.deleteById(orderId);
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(orderId));
+        cacheInvalidationPublisher.publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, orderItemIds(orderFromDb.get()));
         log.info("deleteOrder(): {}",orderFromDb);
         return OrderMapper.INSTANCE.toDto(orderFromDb.get());
     }
 
+    /**
+     * The user is resolved before the orders are read, so no connection is held while userservice is called.
+     */
     @Override
-    @Transactional(readOnly = true)
     public List<OrderWithUserResponse> getOrdersByUserEmail(String email) {
-        UserDto userFromUserService = userClient.getUserByEmail(email);
+        UserDto userFromUserService = userLookupService.getUserByEmail(email);
         log.info("getOrdersByUserEmail: {}",email);
         Long userId = userFromUserService.getUserId();
-        List <Order> orderList = orderRepository.findOrdersByUserId(userId);
-        return orderList.stream().map(order -> {
-            OrderDto orderDto = OrderMapper.INSTANCE.toDto(order);
-            return new OrderWithUserResponse(orderDto, userFromUserService);
-        }).toList();
+        List<OrderDto> orderList = readOnlyTransactionTemplate.execute(status ->
+                withOrderItems(orderRepository.findOrderDtosByUserId(userId), orderRepository.findOrderItemDtosByOrderUserId(userId)));
+        return orderList.stream()
+                .map(orderDto -> new OrderWithUserResponse(orderDto, userFromUserService))
+                .toList();
     }
     
+    /**
+     * Orders are read through the second-level cache (see {@link OrderRepository#multiLoadByIdIn}),
+     * so repeated reads of the same orders, mostly in a terminal status, don't reach the database.
+     * Like the other reads enriched with users, the orders are read in a short read-only transaction
+     * and userservice is called after it, without holding a connection.
+     */
     @Override
-    @Transactional(readOnly = true)
     public List<OrderWithUserResponse> getOrdersIdIn(Set<Long> ids) {
-        List <Order> orderList = orderRepository.findAllByIdIn(ids);
         log.info("getOrdersIdIn()");
-        return toOrderWithUserResponseList(orderList);
+        return withUsers(readOnlyTransactionTemplate.execute(status -> toOrderDtos(orderRepository.multiLoadByIdIn(ids))));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<OrderWithUserResponse> findByStatusIn(Set<OrderStatus> statuses) {
-        List <Order> orderList = orderRepository.findByStatusIn(statuses);
         log.info("findByStatusIn()");
-        return toOrderWithUserResponseList(orderList);
+        return withOrderItemsAndUsers(() -> orderRepository.findOrderDtosByStatusIn(statuses),
+                () -> orderRepository.findOrderItemDtosByOrderStatusIn(statuses));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<OrderWithUserResponse> getAllOrders() {
-        List <Order> orderList = orderRepository.findAll();
         log.info("getAllOrders()");
-        return toOrderWithUserResponseList(orderList);
+        return withOrderItemsAndUsers(orderRepository::findAllOrderDtos, orderItemRepository::findAllOrderItemDtos);
     }
     
+    /**
+     * Streams all orders with their users to the consumer without materializing them in a list.
+     * <p>
+     * Orders are read from a database cursor in chunks of {@link #EXPORT_CHUNK_SIZE}: each chunk is
+     * enriched with one bulk user lookup, handed to the consumer and then detached by clearing
+     * the persistence context, so memory use doesn't depend on the table size.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllOrders(Consumer<OrderWithUserResponse> consumer) {
+        log.info("exportAllOrders()");
+        try (Stream<Order> stream = orderRepository.streamAllOrders()) {
+            List<Order> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            for (Iterator<Order> it = stream.iterator(); it.hasNext(); ) {
+                chunk.add(it.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !it.hasNext()) {
+                    toOrderWithUserResponseList(chunk).forEach(consumer);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<OrderDto> getAllOrdersNativeWithPagination(Integer page, Integer size) {
@@ -212,11 +447,111 @@ public class OrderServiceImpl implements OrderService {
         return orderList.map(OrderMapper.INSTANCE::toDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<OrderDto> getAllOrdersWithCursor(String after, int limit) {
+        List<Order> orderList = orderRepository.findByIdGreaterThanOrderByIdAsc(CursorUtil.decode(after), Limit.of(limit + 1));
+        log.info("getAllOrdersWithCursor(): {} rows", orderList.size());
+        return CursorUtil.toPage(orderList, limit, Order::getId,
+                orders -> orders.stream().map(OrderMapper.INSTANCE::toDto).toList());
+    }
+
+    /**
+     * See {@link #getOrdersByUserEmail(String)}.
+     */
+    @Override
+    public CursorPageDto<OrderWithUserResponse> getOrdersByUserEmailWithCursor(String email, String after, int limit) {
+        long afterId = CursorUtil.decode(after);
+        UserDto userFromUserService = userLookupService.getUserByEmail(email);
+        log.info("getOrdersByUserEmailWithCursor: {}", email);
+        return readOnlyTransactionTemplate.execute(status -> {
+            List<Order> orderList = orderRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                    userFromUserService.getUserId(), afterId, Limit.of(limit + 1));
+            return CursorUtil.toPage(orderList, limit, Order::getId, orders -> orders.stream()
+                    .map(order -> new OrderWithUserResponse(OrderMapper.INSTANCE.toDto(order), userFromUserService))
+                    .toList());
+        });
+    }
+
+    /**
+     * The page is read in a short read-only transaction, its users are looked up after it.
+     */
+    @Override
+    public CursorPageDto<OrderWithUserResponse> findByStatusInWithCursor(Set<OrderStatus> statuses, String after, int limit) {
+        long afterId = CursorUtil.decode(after);
+        CursorPageDto<OrderDto> page = readOnlyTransactionTemplate.execute(status -> {
+            List<Order> orderList = orderRepository.findByStatusInAndIdGreaterThanOrderByIdAsc(
+                    statuses, afterId, Limit.of(limit + 1));
+            log.info("findByStatusInWithCursor(): {} rows", orderList.size());
+            return CursorUtil.toPage(orderList, limit, Order::getId, this::toOrderDtos);
+        });
+        return new CursorPageDto<>(withUsers(page.getContent()), page.getNextCursor());
+    }
+
     private List<OrderWithUserResponse> toOrderWithUserResponseList (List <Order> orderList){
-        return orderList.stream().map(order -> {
-            OrderDto orderDto = OrderMapper.INSTANCE.toDto(order);
-            UserDto userDto =  userClient.getUserById(orderDto.getUserId());
-            return new OrderWithUserResponse(orderDto, userDto);
-        }).toList();
+        return withUsers(toOrderDtos(orderList));
+    }
+
+    private List<OrderDto> toOrderDtos(List<Order> orderList) {
+        return orderList.stream().map(OrderMapper.INSTANCE::toDto).toList();
+    }
+
+    /**
+     * Enriches orders with their users: distinct userIds are resolved with one bulk lookup
+     * and joined to the orders in memory, instead of one userservice call per order.
+     * Users the lookup couldn't resolve (userservice unavailable and not cached) are left {@code null}.
+     */
+    private List<OrderWithUserResponse> withUsers(List<OrderDto> orderDtos) {
+        Set<Long> userIds = orderDtos.stream().map(OrderDto::getUserId).collect(Collectors.toSet());
+        return withUsers(orderDtos, userLookupService.getUsersByIds(userIds));
+    }
+
+    private List<OrderWithUserResponse> withUsers(List<OrderDto> orderDtos, Map<Long, UserDto> users) {
+        if (orderDtos.stream().anyMatch(orderDto -> !users.containsKey(orderDto.getUserId()))) {
+            UserEnrichment.markSkipped();
+        }
+        return orderDtos.stream()
+                .map(orderDto -> new OrderWithUserResponse(orderDto, users.get(orderDto.getUserId())))
+                .toList();
+    }
+
+    /**
+     * Reads orders with their order items and attaches their users. Both queries run in one short read-only
+     * transaction on the calling thread; the bulk user lookup only needs the orders, so it is forked once they
+     * are read and runs concurrently with the order items query. It is joined after the transaction:
+     * no connection is held while waiting for userservice.
+     */
+    private List<OrderWithUserResponse> withOrderItemsAndUsers(Supplier<List<OrderDto>> ordersQuery,
+                                                               Supplier<List<OrderItemDto>> orderItemsQuery) {
+        try (ScopedTasks scope = scopedTaskFactory.open()) {
+            OrdersWithPendingUsers read = readOnlyTransactionTemplate.execute(status -> {
+                List<OrderDto> orderDtos = ordersQuery.get();
+                Set<Long> userIds = orderDtos.stream().map(OrderDto::getUserId).collect(Collectors.toSet());
+                Supplier<Map<Long, UserDto>> users = scope.fork(() -> userLookupService.getUsersByIds(userIds));
+                return new OrdersWithPendingUsers(withOrderItems(orderDtos, orderItemsQuery.get()), users);
+            });
+            scope.join();
+            return withUsers(read.orders(), read.users().get());
+        }
+    }
+
+    /** Orders read in a transaction and the user lookup forked for them, joined once the transaction ended. */
+    private record OrdersWithPendingUsers(List<OrderDto> orders, Supplier<Map<Long, UserDto>> users) {
+    }
+
+    /**
+     * Attaches order items read by a projection query to their orders.
+     * Both lists come from queries with the same filter, so every item belongs to one of the orders.
+     */
+    private List<OrderDto> withOrderItems(List<OrderDto> orders, List<OrderItemDto> orderItems) {
+        Map<Long, OrderDto> ordersById = orders.stream()
+                .collect(Collectors.toMap(OrderDto::getId, Function.identity()));
+        for (OrderItemDto orderItem : orderItems) {
+            OrderDto order = ordersById.get(orderItem.getOrderId());
+            if (order != null) {
+                order.getOrderItems().add(orderItem);
+            }
+        }
+        return orders;
     }
 }
@@ -0,0 +1,241 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.exception.TooManySubscribersException;
+import com.mymicroservice.orderservice.service.OrderStatusStreamService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Server-Sent Events streams of order status changes, per order and per user.
+ * <p>
+ * A subscriber is an {@link SseEmitter}, i.e. an asynchronous servlet request: an idle stream holds
+ * a socket and a few objects, no thread. Events are written on virtual threads, one sequence per subscriber
+ * so its events keep their order, and a slow client never blocks the Kafka listener or other subscribers.
+ * <p>
+ * Streams carry one event named {@value #STATUS_EVENT} per change with the version as event ID, and a comment
+ * every {@code heartbeat} that keeps proxies from closing idle connections and detects clients that are gone.
+ * A stream ends after {@code timeout} (clients reconnect and get the current status again); subscriptions
+ * above {@code max-subscribers} per instance are rejected. The number of open streams is published as the
+ * {@value #SUBSCRIBERS_METRIC} gauge.
+ */
+@Slf4j
+@Service
+public class OrderStatusStreamServiceImpl implements OrderStatusStreamService, SmartLifecycle {
+
+    public static final String SUBSCRIBERS_METRIC = "order.status.stream.subscribers";
+    public static final String STATUS_EVENT = "status";
+
+    private final Map<Long, Set<Subscriber>> orderSubscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration heartbeat;
+
+    private volatile ScheduledExecutorService heartbeatScheduler;
+
+    public OrderStatusStreamServiceImpl(MeterRegistry meterRegistry,
+                                        @Value("${order-status.stream.max-subscribers:20000}") int maxSubscribers,
+                                        @Value("${order-status.stream.timeout:30m}") Duration timeout,
+                                        @Value("${order-status.stream.heartbeat:15s}") Duration heartbeat) {
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        Gauge.builder(SUBSCRIBERS_METRIC, subscriberCount, AtomicInteger::get)
+                .description("Open status streams on this instance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the changes of one order. The subscriber is registered before the current status is read,
+     * so a change committed in between is not missed (it may arrive twice, with the same event ID).
+     *
+     * @param currentStatus reads the current status, sent as the first event
+     * @return the stream, empty if the order doesn't exist
+     * @throws TooManySubscribersException if this instance already serves {@code max-subscribers} streams
+     */
+    @Override
+    public Optional<SseEmitter> subscribeToOrder(Long orderId, Supplier<Optional<OrderStatusChange>> currentStatus) {
+        Subscriber subscriber = register(orderSubscribers, orderId);
+        Optional<OrderStatusChange> current;
+        try {
+            current = currentStatus.get();
+        } catch (RuntimeException e) {
+            subscriber.unsubscribe();
+            throw e;
+        }
+        if (current.isEmpty()) {
+            subscriber.unsubscribe();
+            return Optional.empty();
+        }
+        OrderStatusChange status = current.get();
+        subscriber.send(() -> statusEvent(status));
+        return Optional.of(subscriber.emitter);
+    }
+
+    /**
+     * Subscribes to the changes of all orders of the user.
+     *
+     * @throws TooManySubscribersException if this instance already serves {@code max-subscribers} streams
+     */
+    @Override
+    public SseEmitter subscribeToUser(Long userId) {
+        return register(userSubscribers, userId).emitter;
+    }
+
+    /**
+     * Pushes the change to the subscribers of the order and of its user connected to this instance.
+     * Returns without waiting for the writes.
+     */
+    @Override
+    public void dispatch(OrderStatusChange change) {
+        Stream.concat(subscribersOf(orderSubscribers, change.getOrderId()), subscribersOf(userSubscribers, change.getUserId()))
+                .forEach(subscriber -> subscriber.send(() -> statusEvent(change)));
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void start() {
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("order-status-heartbeat").daemon().factory());
+        heartbeatScheduler.scheduleWithFixedDelay(this::sendHeartbeats,
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends all streams, so clients reconnect to another instance instead of waiting for the timeout.
+     */
+    @Override
+    public void stop() {
+        heartbeatScheduler.shutdownNow();
+        heartbeatScheduler = null;
+        allSubscribers().forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return heartbeatScheduler != null;
+    }
+
+    private void sendHeartbeats() {
+        allSubscribers().forEach(subscriber -> subscriber.send(() -> SseEmitter.event().comment("heartbeat")));
+    }
+
+    private Subscriber register(Map<Long, Set<Subscriber>> subscribers, Long key) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscribersException("Too many status streams open, retry later");
+        }
+        Subscriber subscriber = new Subscriber(newEmitter(timeout.toMillis()), subscribers, key);
+        // added inside compute: unregistering the last subscriber of the key removes its set atomically
+        subscribers.compute(key, (k, set) -> {
+            Set<Subscriber> keySubscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+            keySubscribers.add(subscriber);
+            return keySubscribers;
+        });
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+        subscriber.emitter.onCompletion(subscriber::unsubscribe);
+        subscriber.emitter.onError(e -> subscriber.unsubscribe());
+        return subscriber;
+    }
+
+    /**
+     * Emitter of a new subscriber; tests override it to capture the events sent outside of a servlet request.
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private Stream<Subscriber> subscribersOf(Map<Long, Set<Subscriber>> subscribers, Long key) {
+        Set<Subscriber> keySubscribers = key != null ? subscribers.get(key) : null;
+        return keySubscribers != null ? keySubscribers.stream() : Stream.empty();
+    }
+
+    private Stream<Subscriber> allSubscribers() {
+        return Stream.of(orderSubscribers, userSubscribers)
+                .flatMap(subscribers -> subscribers.values().stream())
+                .flatMap(Set::stream)
+                .toList().stream(); // snapshot: subscribers may unregister while being iterated
+    }
+
+    private static SseEmitter.SseEventBuilder statusEvent(OrderStatusChange change) {
+        return SseEmitter.event()
+                .name(STATUS_EVENT)
+                .id(String.valueOf(change.getVersion()))
+                .data(change, MediaType.APPLICATION_JSON);
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Map<Long, Set<Subscriber>> subscribers;
+        private final Long key;
+        private final AtomicBoolean subscribed = new AtomicBoolean(true);
+        private CompletableFuture<Void> lastSend = CompletableFuture.completedFuture(null);
+
+        private Subscriber(SseEmitter emitter, Map<Long, Set<Subscriber>> subscribers, Long key) {
+            this.emitter = emitter;
+            this.subscribers = subscribers;
+            this.key = key;
+        }
+
+        /**
+         * Queues the event behind the previous ones of this subscriber. A failed write (client gone)
+         * unsubscribes it; the servlet container then ends the request.
+         *
+         * @param event builds the event for this subscriber: a builder appends to its content on every
+         *              {@code build()}, so it can't be shared by subscribers
+         */
+        private synchronized void send(Supplier<SseEmitter.SseEventBuilder> event) {
+            lastSend = lastSend.thenRunAsync(() -> {
+                if (!subscribed.get()) {
+                    return;
+                }
+                try {
+                    emitter.send(event.get());
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Status stream closed: {}", e.getMessage());
+                    unsubscribe();
+                }
+            }, sender);
+        }
+
+        private void unsubscribe() {
+            if (subscribed.compareAndSet(true, false)) {
+                subscribers.computeIfPresent(key, (k, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+                subscriberCount.decrementAndGet();
+            }
+        }
+    }
+}
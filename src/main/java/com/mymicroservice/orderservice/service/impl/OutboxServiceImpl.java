@@ -0,0 +1,214 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.kafka.OrderEventProducer;
+import com.mymicroservice.orderservice.kafka.OrderStatusChangePublisher;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.model.OutboxEvent;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.repository.OutboxEventRepository;
+import com.mymicroservice.orderservice.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.mymicroservices.common.events.OrderEventDto;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Transactional outbox for events to PaymentService.
+ * <p>
+ * Events are stored in {@code outbox_events} by the transaction that writes the order and are published
+ * by {@link com.mymicroservice.orderservice.kafka.OutboxRelay} afterwards, so an event is sent only for
+ * a committed order and is not lost when the broker is unavailable: it is retried until acknowledged.
+ * Delivery is at-least-once.
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final OrderEventProducer orderEventProducer;
+    private final OrderStatusChangePublisher orderStatusChangePublisher;
+    private final ObjectMapper objectMapper;
+    private final Duration sendTimeout;
+
+    public OutboxServiceImpl(OutboxEventRepository outboxEventRepository,
+                             OrderRepository orderRepository,
+                             OrderEventProducer orderEventProducer,
+                             OrderStatusChangePublisher orderStatusChangePublisher,
+                             ObjectMapper objectMapper,
+                             @Value("${outbox.relay.send-timeout:30s}") Duration sendTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderRepository = orderRepository;
+        this.orderEventProducer = orderEventProducer;
+        this.orderStatusChangePublisher = orderStatusChangePublisher;
+        this.objectMapper = objectMapper;
+        this.sendTimeout = sendTimeout;
+    }
+
+    /**
+     * Stores the event in the outbox. Must be called inside the transaction that writes the order.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueCreateOrder(OrderEventDto event) {
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .aggregateId(Long.valueOf(event.getOrderId()))
+                .eventType(OutboxEvent.CREATE_ORDER)
+                .topic(orderEventProducer.getOrderTopic())
+                .payload(toJson(event))
+                .requestId(MDC.get("requestId"))
+                .sourceService(MDC.get("serviceName"))
+                .createdAt(LocalDateTime.now())
+                .build();
+        outboxEventRepository.save(outboxEvent);
+        log.info("enqueueCreateOrder(): orderId={}", event.getOrderId());
+    }
+
+    /**
+     * Publishes one batch of the oldest unpublished events.
+     * <p>
+     * The batch is locked with {@code FOR UPDATE SKIP LOCKED} for the duration of the transaction.
+     * All events are sent before the first acknowledgement is awaited, so the batch costs about one
+     * broker round trip instead of one per event. Acknowledged events are marked as published and
+     * their orders are moved to PROCESSING (where the transition table allows it) with one statement each.
+     * Failed events stay in the outbox and are retried by the next batch, together with later events
+     * of the same order, so the events of an order don't overtake each other.
+     *
+     * @param limit maximum number of events to publish
+     * @return number of published events
+     */
+    @Override
+    @Transactional
+    public int relayBatch(int limit) {
+        List<OutboxEvent> events = outboxEventRepository.lockUnpublishedBatch(limit);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> acks = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            acks.add(send(event));
+        }
+        awaitAll(acks);
+
+        List<Long> publishedIds = new ArrayList<>(events.size());
+        Set<Long> orderIds = new HashSet<>();
+        Set<Long> failedOrderIds = new HashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            CompletableFuture<?> ack = acks.get(i);
+            if (ack.isDone() && !ack.isCompletedExceptionally() && !failedOrderIds.contains(event.getAggregateId())) {
+                publishedIds.add(event.getId());
+                orderIds.add(event.getAggregateId());
+            } else {
+                failedOrderIds.add(event.getAggregateId());
+            }
+        }
+        orderIds.removeAll(failedOrderIds);
+
+        if (!publishedIds.isEmpty()) {
+            outboxEventRepository.markPublished(publishedIds, LocalDateTime.now());
+        }
+        if (!orderIds.isEmpty()) {
+            orderStatusChangePublisher.publishAfterCommit(
+                    orderRepository.transitionStatusByIdIn(orderIds, OrderStatus.PROCESSING, OrderStatus.PROCESSING.allowedFrom()));
+        }
+        if (publishedIds.size() < events.size()) {
+            log.warn("relayBatch(): {} of {} events were not acknowledged and will be retried",
+                    events.size() - publishedIds.size(), events.size());
+        }
+        log.info("relayBatch(): published {} events", publishedIds.size());
+        return publishedIds.size();
+    }
+
+    @Override
+    @Transactional
+    public int purgePublished(Duration retention) {
+        int deleted = outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention));
+        log.info("purgePublished(): {} events deleted", deleted);
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return outboxEventRepository.countByPublishedAtIsNull();
+    }
+
+    /**
+     * Age of the oldest unpublished event, i.e. how far the relay is behind. Zero if the outbox is drained.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Duration getLag() {
+        return outboxEventRepository.findOldestUnpublishedCreatedAt()
+                .map(createdAt -> Duration.between(createdAt, LocalDateTime.now()))
+                .filter(lag -> !lag.isNegative())
+                .orElse(Duration.ZERO);
+    }
+
+    /**
+     * Sends the event with the MDC of the request that created it, so the headers carry the original requestId.
+     */
+    private CompletableFuture<?> send(OutboxEvent event) {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        try {
+            putIfNotNull("requestId", event.getRequestId());
+            putIfNotNull("serviceName", event.getSourceService());
+            return orderEventProducer.sendCreateOrder(objectMapper.readValue(event.getPayload(), OrderEventDto.class));
+        } catch (Exception e) {
+            log.error("Failed to send outbox event {}: {}", event.getId(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
+
+    private void awaitAll(List<CompletableFuture<?>> acks) {
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // some sends failed: they are detected one by one by the caller
+        } catch (TimeoutException e) {
+            log.warn("Not all outbox events were acknowledged within {}", sendTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String toJson(OrderEventDto event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can't serialize event for order " + event.getOrderId(), e);
+        }
+    }
+
+    private static void putIfNotNull(String key, String value) {
+        if (value != null) {
+            MDC.put(key, value);
+        }
+    }
+}
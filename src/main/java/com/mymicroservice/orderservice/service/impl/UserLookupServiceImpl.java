@@ -0,0 +1,372 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.mymicroservice.orderservice.client.UserClient;
+import com.mymicroservice.orderservice.client.UserServiceGuard;
+import com.mymicroservice.orderservice.client.UserServiceHedging;
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import com.mymicroservice.orderservice.service.UserLookupService;
+import com.mymicroservice.orderservice.service.UserProjectionService;
+import com.mymicroservice.orderservice.util.SingleFlight;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for user data from userservice.
+ * <p>
+ * Users are kept in a size-bounded local cache: entries expire {@code ttl} after they were loaded
+ * and are refreshed in the background once they are older than {@code refresh-after}, so hot users
+ * never hit an expired entry. Concurrent misses for the same key are coalesced into one remote call.
+ * <p>
+ * Remote calls themselves are coalesced per userId/email with {@link SingleFlight}, also where the cache
+ * doesn't lock keys: overlapping bulk loads, parallel single lookups and lookups racing an expiry.
+ * Collapsed calls are counted as {@value #COALESCED_METRIC}, followers that gave up after
+ * {@code single-flight.max-wait} as {@value #COALESCED_TIMEOUTS_METRIC}.
+ * Hit/miss/eviction statistics are published as {@code cache.*} metrics with the tag
+ * {@code cache=users-by-id} or {@code cache=user-ids-by-email}.
+ * <p>
+ * Cache misses are served from the local user projection when it is enabled and caught up
+ * (see {@link UserProjectionService}); only users it doesn't have are requested from userservice.
+ * <p>
+ * Remote calls go through {@link UserServiceGuard}; single-user GETs are also hedged by {@link UserServiceHedging}. While userservice is unavailable, users are served
+ * from the last-known copies kept for {@code stale-ttl} (counted as {@value #STALE_METRIC});
+ * only users never seen before fail with {@link UserServiceUnavailableException}.
+ */
+@Slf4j
+@Service
+public class UserLookupServiceImpl implements UserLookupService {
+
+    public static final String STALE_METRIC = "user.lookup.stale";
+    public static final String COALESCED_METRIC = "user.lookup.coalesced";
+    public static final String COALESCED_TIMEOUTS_METRIC = "user.lookup.coalesced.timeouts";
+    public static final String IN_FLIGHT_METRIC = "user.lookup.in-flight";
+
+    private static final long BATCH_REPROBE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final UserClient userClient;
+    private final UserServiceGuard userServiceGuard;
+    private final UserServiceHedging userServiceHedging;
+    private final UserProjectionService userProjectionService;
+    private final Executor userLookupExecutor;
+    private final int chunkSize;
+
+    private final LoadingCache<Long, UserDto> usersById;
+    private final Cache<String, Long> userIdsByEmail;
+    private final Cache<Long, UserDto> lastKnownUsers;
+    private final Counter staleUsers;
+    private final SingleFlight<Long, UserDto> userCallsById;
+    private final SingleFlight<String, UserDto> userCallsByEmail;
+
+    /**
+     * Moment (System.nanoTime) until which the batch endpoint is considered unavailable.
+     * Zero means the batch endpoint is used.
+     */
+    private final AtomicLong batchUnavailableUntil = new AtomicLong();
+
+    public UserLookupServiceImpl(UserClient userClient,
+                                 UserServiceGuard userServiceGuard,
+                                 UserServiceHedging userServiceHedging,
+                                 UserProjectionService userProjectionService,
+                                 @Qualifier("userLookupExecutor") Executor userLookupExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${user-service.lookup.chunk-size:25}") int chunkSize,
+                                 @Value("${user-service.cache.max-size:10000}") long cacheMaxSize,
+                                 @Value("${user-service.cache.ttl:10m}") Duration cacheTtl,
+                                 @Value("${user-service.cache.refresh-after:5m}") Duration cacheRefreshAfter,
+                                 @Value("${user-service.cache.stale-ttl:24h}") Duration cacheStaleTtl,
+                                 @Value("${user-service.single-flight.max-wait:5s}") Duration singleFlightMaxWait) {
+        this.userClient = userClient;
+        this.userServiceGuard = userServiceGuard;
+        this.userServiceHedging = userServiceHedging;
+        this.userProjectionService = userProjectionService;
+        this.userLookupExecutor = userLookupExecutor;
+        this.chunkSize = Math.max(1, chunkSize);
+
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .refreshAfterWrite(cacheRefreshAfter)
+                .executor(userLookupExecutor)
+                .recordStats()
+                .build(new UserCacheLoader());
+        this.userIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        this.lastKnownUsers = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheStaleTtl)
+                .build();
+        this.staleUsers = Counter.builder(STALE_METRIC)
+                .description("Users served from the last-known copy while userservice was unavailable")
+                .register(meterRegistry);
+
+        this.userCallsById = new SingleFlight<>(singleFlightMaxWait);
+        this.userCallsByEmail = new SingleFlight<>(singleFlightMaxWait);
+        bindSingleFlightMetrics(meterRegistry, userCallsById, "id");
+        bindSingleFlightMetrics(meterRegistry, userCallsByEmail, "email");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users-by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdsByEmail, "user-ids-by-email");
+    }
+
+    private static void bindSingleFlightMetrics(MeterRegistry meterRegistry, SingleFlight<?, ?> singleFlight, String key) {
+        FunctionCounter.builder(COALESCED_METRIC, singleFlight, SingleFlight::getCoalescedCalls)
+                .description("Calls to userservice served by an identical call already in flight")
+                .tag("key", key)
+                .register(meterRegistry);
+        FunctionCounter.builder(COALESCED_TIMEOUTS_METRIC, singleFlight, SingleFlight::getTimedOutCalls)
+                .description("Callers that stopped waiting for an identical call in flight")
+                .tag("key", key)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, singleFlight, SingleFlight::getInFlight)
+                .description("Distinct keys with a call to userservice in flight")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public UserDto getUserById(Long userId) {
+        try {
+            return usersById.get(userId);
+        } catch (UserServiceUnavailableException e) {
+            UserDto lastKnown = lastKnownUsers.getIfPresent(userId);
+            if (lastKnown == null) {
+                throw e;
+            }
+            log.warn("getUserById(): serving last-known user {}: {}", userId, e.getMessage());
+            staleUsers.increment();
+            return lastKnown;
+        }
+    }
+
+    /**
+     * Resolves the user by email through the cached email→userId mapping.
+     * If the cached user no longer has this email (the email was changed in userservice),
+     * the mapping is dropped and the user is looked up by email again.
+     */
+    @Override
+    public UserDto getUserByEmail(String email) {
+        try {
+            return loadUserByEmail(email);
+        } catch (UserServiceUnavailableException e) {
+            Long userId = userIdsByEmail.getIfPresent(email);
+            UserDto lastKnown = userId != null ? lastKnownUsers.getIfPresent(userId) : null;
+            if (lastKnown == null) {
+                throw e;
+            }
+            log.warn("getUserByEmail(): serving last-known user {}: {}", userId, e.getMessage());
+            staleUsers.increment();
+            return lastKnown;
+        }
+    }
+
+    private UserDto loadUserByEmail(String email) {
+        UserDto user = usersById.get(userIdsByEmail.get(email, this::loadUserIdByEmail));
+        if (user != null && Objects.equals(email, user.getEmail())) {
+            return user;
+        }
+        userIdsByEmail.invalidate(email);
+        return usersById.get(userIdsByEmail.get(email, this::loadUserIdByEmail));
+    }
+
+    /**
+     * Resolves all given users: cached users are served locally, the rest is loaded
+     * with one call to the batch endpoint of userservice.
+     * <p>
+     * If userservice doesn't expose the batch endpoint, users are resolved with single
+     * lookups split into chunks that run in parallel on {@code userLookupExecutor}.
+     * Users missing from the batch response are looked up one by one, so an unknown user
+     * fails the same way as {@link UserClient#getUserById(Long)} does.
+     *
+     * <p>
+     * While userservice is unavailable, cached and last-known users are returned and
+     * the others are absent from the result.
+     *
+     * @param userIds IDs of the users to resolve
+     * @return users mapped by their ID
+     */
+    @Override
+    public Map<Long, UserDto> getUsersByIds(Set<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Map.of();
+        }
+        log.info("getUsersByIds(): {} distinct users", userIds.size());
+        try {
+            return usersById.getAll(userIds);
+        } catch (UserServiceUnavailableException e) {
+            Map<Long, UserDto> users = new HashMap<>(lastKnownUsers.getAllPresent(userIds));
+            users.putAll(usersById.getAllPresent(userIds));
+            log.warn("getUsersByIds(): serving {} of {} users from cache: {}", users.size(), userIds.size(), e.getMessage());
+            staleUsers.increment(users.size());
+            return users;
+        }
+    }
+
+    private Long loadUserIdByEmail(String email) {
+        UserDto user = userProjectionService.findUserByEmail(email).orElseGet(() -> loadUserByEmailRemotely(email));
+        usersById.put(user.getUserId(), user);
+        return user.getUserId();
+    }
+
+    private UserDto loadUserByEmailRemotely(String email) {
+        return coalesced(() -> userCallsByEmail.execute(email,
+                () -> remember(userServiceHedging.call(() -> userServiceGuard.call(() -> userClient.getUserByEmail(email))))));
+    }
+
+    private UserDto loadUser(Long userId) {
+        return coalesced(() -> userCallsById.execute(userId,
+                () -> remember(userServiceHedging.call(() -> userServiceGuard.call(() -> userClient.getUserById(userId))))));
+    }
+
+    /**
+     * A caller that waited too long for an identical call in flight is treated like a timed-out call,
+     * so the last-known user can still be served.
+     */
+    private static <T> T coalesced(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (DeadlineExceededException e) {
+            throw new UserServiceUnavailableException("userservice is unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private UserDto remember(UserDto user) {
+        lastKnownUsers.put(user.getUserId(), user);
+        return user;
+    }
+
+    private Map<Long, UserDto> loadUsers(Set<? extends Long> userIds) {
+        Map<Long, UserDto> users = new HashMap<>(userProjectionService.findUsers(userIds));
+        if (users.size() == userIds.size()) {
+            return users;
+        }
+        Set<Long> remoteIds = new HashSet<>(userIds);
+        remoteIds.removeAll(users.keySet());
+        users.putAll(loadRemoteUsers(remoteIds));
+        return users;
+    }
+
+    private Map<Long, UserDto> loadRemoteUsers(Set<Long> userIds) {
+        Map<Long, UserDto> users = new HashMap<>();
+        if (isBatchAvailable()) {
+            try {
+                users.putAll(coalesced(() -> userCallsById.executeAll(userIds, this::loadBatch)));
+            } catch (FeignException.NotFound | FeignException.MethodNotAllowed | FeignException.NotImplemented e) {
+                log.warn("Batch endpoint of userservice is unavailable (status {}), falling back to single lookups",
+                        e.status());
+                batchUnavailableUntil.set(System.nanoTime() + BATCH_REPROBE_INTERVAL_NANOS);
+            }
+        }
+
+        Set<Long> missing = new HashSet<>(userIds);
+        missing.removeAll(users.keySet());
+        if (!missing.isEmpty()) {
+            users.putAll(getUsersInParallel(missing));
+        }
+        return users;
+    }
+
+    private Map<Long, UserDto> loadBatch(Set<Long> userIds) {
+        Map<Long, UserDto> users = new HashMap<>();
+        for (UserDto user : userServiceGuard.call(() -> userClient.getUsersByIds(userIds))) {
+            users.put(user.getUserId(), remember(user));
+        }
+        return users;
+    }
+
+    private boolean isBatchAvailable() {
+        long until = batchUnavailableUntil.get();
+        return until == 0 || System.nanoTime() - until > 0;
+    }
+
+    private Map<Long, UserDto> getUsersInParallel(Set<Long> userIds) {
+        List<CompletableFuture<Map<Long, UserDto>>> futures = new ArrayList<>();
+        for (List<Long> chunk : chunk(userIds)) {
+            futures.add(CompletableFuture.supplyAsync(() -> getUsersOneByOne(chunk), userLookupExecutor));
+        }
+
+        Map<Long, UserDto> users = new HashMap<>();
+        try {
+            futures.forEach(future -> users.putAll(future.join()));
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // keep FeignException, so GlobalAdvice maps it as before
+            }
+            throw e;
+        }
+        return users;
+    }
+
+    private Map<Long, UserDto> getUsersOneByOne(List<Long> userIds) {
+        Map<Long, UserDto> users = new HashMap<>();
+        for (Long userId : userIds) {
+            users.put(userId, loadUser(userId));
+        }
+        return users;
+    }
+
+    private List<List<Long>> chunk(Set<Long> userIds) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>(chunkSize);
+        for (Long userId : userIds) {
+            current.add(userId);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Loads single users on the calling thread and bulk misses through {@link #loadUsers(Set)},
+     * from the projection first.
+     * Refresh-ahead reloads run asynchronously on {@code userLookupExecutor}.
+     */
+    private class UserCacheLoader implements CacheLoader<Long, UserDto> {
+
+        @Override
+        public UserDto load(Long userId) {
+            return userProjectionService.findUser(userId).orElseGet(() -> loadUser(userId));
+        }
+
+        @Override
+        public Map<Long, UserDto> loadAll(Set<? extends Long> userIds) {
+            return loadUsers(userIds);
+        }
+    }
+}
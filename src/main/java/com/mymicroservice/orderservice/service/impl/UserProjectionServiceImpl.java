@@ -0,0 +1,177 @@
+package com.mymicroservice.orderservice.service.impl;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.mapper.UserProjectionMapper;
+import com.mymicroservice.orderservice.model.UserProjection;
+import com.mymicroservice.orderservice.repository.UserProjectionRepository;
+import com.mymicroservice.orderservice.service.UserProjectionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Local projection of the users of userservice (enabled by {@code user-projection.enabled=true}),
+ * written by {@link com.mymicroservice.orderservice.kafka.UserEventListener} from the compacted user-events topic.
+ * <p>
+ * Reads are served only while the listener keeps up with the topic: every partition assigned to it (across all
+ * consumers of the listener) must be at most {@code user-projection.max-lag} records behind, as reported after
+ * each batch, or idle. Until the projection has caught up after startup, whenever a partition falls further behind,
+ * and for users the projection doesn't have yet, {@link UserLookupServiceImpl} calls userservice.
+ * Reads are counted as {@value #READS_METRIC} with {@code result=hit|miss}.
+ */
+@Slf4j
+@Service
+public class UserProjectionServiceImpl implements UserProjectionService {
+
+    public static final String READS_METRIC = "user.projection.reads";
+    public static final String CAUGHT_UP_METRIC = "user.projection.caught-up";
+
+    /** Lag of a partition assigned to the listener but not reported yet. */
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+    private final UserProjectionRepository userProjectionRepository;
+    private final boolean enabled;
+    private final long maxLag;
+    private final Map<Integer, Long> lagByPartition = new ConcurrentHashMap<>();
+    private final AtomicBoolean caughtUp = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserProjectionServiceImpl(UserProjectionRepository userProjectionRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${user-projection.enabled:false}") boolean enabled,
+                                     @Value("${user-projection.max-lag:1000}") long maxLag) {
+        this.userProjectionRepository = userProjectionRepository;
+        this.enabled = enabled;
+        this.maxLag = maxLag;
+        this.hits = Counter.builder(READS_METRIC).tag("result", "hit")
+                .description("Users served from the local projection")
+                .register(meterRegistry);
+        this.misses = Counter.builder(READS_METRIC).tag("result", "miss")
+                .description("Users the local projection didn't have")
+                .register(meterRegistry);
+        Gauge.builder(CAUGHT_UP_METRIC, caughtUp, value -> value.get() ? 1 : 0)
+                .description("1 while the projection keeps up with the user-events topic")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Applies the latest state of each user: upserts users and deletes those mapped to {@code null} (tombstones).
+     *
+     * @param users latest state per user ID, {@code null} if the user was deleted
+     */
+    @Override
+    @Transactional
+    public void applyUserEvents(Map<Long, UserDto> users) {
+        List<UserDto> upserts = new ArrayList<>(users.size());
+        List<Long> deletes = new ArrayList<>();
+        users.forEach((userId, user) -> {
+            if (user != null) {
+                upserts.add(user);
+            } else {
+                deletes.add(userId);
+            }
+        });
+        if (!upserts.isEmpty()) {
+            userProjectionRepository.upsertAll(upserts);
+        }
+        if (!deletes.isEmpty()) {
+            userProjectionRepository.deleteAllByIdInBatch(deletes);
+        }
+        log.info("applyUserEvents(): {} users upserted, {} deleted", upserts.size(), deletes.size());
+    }
+
+    /**
+     * Partitions assigned to one of the consumers of the listener; they count as behind until their lag is reported.
+     */
+    @Override
+    public void partitionsAssigned(Collection<Integer> partitions) {
+        partitions.forEach(partition -> lagByPartition.put(partition, UNKNOWN_LAG));
+        updateCaughtUp();
+    }
+
+    @Override
+    public void partitionsRevoked(Collection<Integer> partitions) {
+        partitions.forEach(lagByPartition::remove);
+        updateCaughtUp();
+    }
+
+    /**
+     * @param lagByPartition records behind the end of each partition, {@code 0} for an idle one;
+     *                       partitions not assigned to the listener are ignored
+     */
+    @Override
+    public void recordLag(Map<Integer, Long> lagByPartition) {
+        lagByPartition.forEach((partition, lag) -> this.lagByPartition.computeIfPresent(partition, (p, previous) -> lag));
+        updateCaughtUp();
+    }
+
+    // synchronized: consumers of different partitions report concurrently, the last computed state must win
+    private synchronized void updateCaughtUp() {
+        long lag = lagByPartition.values().stream().mapToLong(Long::longValue).max().orElse(UNKNOWN_LAG);
+        boolean nowCaughtUp = lag <= maxLag;
+        if (caughtUp.getAndSet(nowCaughtUp) != nowCaughtUp) {
+            if (nowCaughtUp) {
+                log.info("User projection has caught up with the user-events topic, serving users locally");
+            } else {
+                log.warn("User projection is behind the user-events topic (max lag: {}), serving users from userservice",
+                        lag == UNKNOWN_LAG ? "unknown" : lag);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return enabled && caughtUp.get();
+    }
+
+    @Override
+    public Optional<UserDto> findUser(Long userId) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        return count(userProjectionRepository.findById(userId).map(UserProjectionMapper.INSTANCE::toDto));
+    }
+
+    @Override
+    public Optional<UserDto> findUserByEmail(String email) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        return count(userProjectionRepository.findFirstByEmail(email).map(UserProjectionMapper.INSTANCE::toDto));
+    }
+
+    /**
+     * @return users found in the projection, by ID; users it doesn't have are absent
+     */
+    @Override
+    public Map<Long, UserDto> findUsers(Set<? extends Long> userIds) {
+        if (!isAvailable() || userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, UserDto> users = userProjectionRepository.findAllByUserIdIn(List.copyOf(userIds)).stream()
+                .collect(Collectors.toMap(UserProjection::getUserId, UserProjectionMapper.INSTANCE::toDto));
+        hits.increment(users.size());
+        misses.increment(userIds.size() - users.size());
+        return users;
+    }
+
+    private Optional<UserDto> count(Optional<UserDto> user) {
+        (user.isPresent() ? hits : misses).increment();
+        return user;
+    }
+}
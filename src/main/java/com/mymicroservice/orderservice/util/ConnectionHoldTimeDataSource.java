@@ -0,0 +1,100 @@
+package com.mymicroservice.orderservice.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource wrapper that measures how long each pooled connection is held, i.e. the time
+ * between {@code getConnection()} and {@code close()}.
+ * <p>
+ * Published as the {@value #METRIC_NAME} timer, tagged with the HTTP method and the URI pattern
+ * of the request that borrowed the connection ({@code none} outside of HTTP requests,
+ * e.g. in Kafka listeners).
+ */
+public class ConnectionHoldTimeDataSource extends DelegatingDataSource {
+
+    public static final String METRIC_NAME = "db.connection.hold";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public ConnectionHoldTimeDataSource(DataSource targetDataSource, MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    private Connection track(Connection connection) {
+        Timer timer = timerForCurrentRequest();
+        long start = System.nanoTime();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new HoldTimeHandler(connection, timer, start));
+    }
+
+    private Timer timerForCurrentRequest() {
+        String method = NONE;
+        String uri = NONE;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            method = request.getMethod();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        }
+        return Timer.builder(METRIC_NAME)
+                .description("Time a pooled JDBC connection is checked out")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+
+    private static final class HoldTimeHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final Timer timer;
+        private final long start;
+        private boolean recorded;
+
+        private HoldTimeHandler(Connection target, Timer timer, long start) {
+            this.target = target;
+            this.timer = timer;
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && !recorded) {
+                recorded = true;
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.dto.CursorPageDto;
+import com.mymicroservice.orderservice.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for keyset (cursor) pagination over entities ordered by ID.
+ * <p>
+ * The cursor is the ID of the last returned row encoded as URL-safe Base64, so clients
+ * treat it as an opaque value. A page is read with {@code WHERE id > :after ORDER BY id LIMIT :limit + 1}:
+ * the extra row only tells whether there is a next page and is not returned.
+ */
+public class CursorUtil {
+
+    private static final String PREFIX = "id:";
+
+    /**
+     * Decodes a cursor received from a client.
+     *
+     * @param cursor cursor from the previous page, {@code null} or blank for the first page
+     * @return ID after which the next page starts ({@code 0} for the first page)
+     * @throws InvalidCursorException if the cursor wasn't issued by this service
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(PREFIX)) {
+                long id = Long.parseLong(value.substring(PREFIX.length()));
+                if (id >= 0) {
+                    return id;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // not Base64 or not a number, reported below
+        }
+        throw new InvalidCursorException("Invalid cursor: " + cursor);
+    }
+
+    public static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}.
+     *
+     * @param rows rows ordered by ID, at most {@code limit + 1}
+     * @param limit requested page size
+     * @param idOf extracts the ID of a row
+     * @param mapper converts the rows of the page to DTOs
+     * @return page with at most {@code limit} elements and the cursor of the next page
+     */
+    public static <E, T> CursorPageDto<T> toPage(List<E> rows, int limit,
+                                                 Function<E, Long> idOf, Function<List<E>, List<T>> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = hasNext ? encode(idOf.apply(pageRows.get(limit - 1))) : null;
+        return new CursorPageDto<>(mapper.apply(pageRows), nextCursor);
+    }
+}
@@ -0,0 +1,86 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Entity tags of orders and items derived from their {@code @Version}: the ETag of version 3 is {@code "3"}.
+ * <p>
+ * A version changes with every update of the row, so the tag is strong and can be used in {@code If-Match}.
+ * For orders it doesn't cover the user the response is enriched with.
+ */
+public class ETagUtil {
+
+    public static String toETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @return 200 with the body and, if the version is known, its ETag
+     */
+    public static <T> ResponseEntity<T> ok(T body, Long version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (version != null) {
+            builder.eTag(toETag(version));
+        }
+        return builder.body(body);
+    }
+
+    public static <T> ResponseEntity<T> notModified(long version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(toETag(version)).build();
+    }
+
+    /**
+     * Weak comparison of {@code If-None-Match} (RFC 9110, 13.1.2): {@code *} or any listed tag, weak or not,
+     * with the same opaque value matches.
+     */
+    public static boolean noneMatchHits(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = toETag(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the version a client expects from {@code If-Match}.
+     *
+     * @return {@code null} without the header or for {@code *}, i.e. when any version is accepted
+     * @throws VersionMismatchException if the header isn't a single strong ETag issued by this service,
+     *                                  which can't match any current version
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // falls through
+            }
+        }
+        throw new VersionMismatchException("If-Match " + ifMatch + " doesn't match the current version");
+    }
+
+    /**
+     * Checks the {@code If-Match} precondition against the version of the loaded entity.
+     *
+     * @param expectedVersion version from {@link #expectedVersion(String)}, {@code null} to skip the check
+     * @throws VersionMismatchException if the entity was changed since the client read it
+     */
+    public static void checkVersion(Long expectedVersion, Long currentVersion, String entity) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new VersionMismatchException(entity + " was modified: expected version " + expectedVersion
+                    + ", current version " + currentVersion);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mymicroservice.orderservice.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes objects to an output stream as newline-delimited JSON (one JSON document per line).
+ * <p>
+ * Every object is serialized straight to the stream, so an export never keeps more than one
+ * DTO (plus the buffer) in memory on the writing side.
+ */
+public class NdjsonWriter<T> implements Consumer<T> {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        // the generator must not close the response stream after each document
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void accept(T value) {
+        try {
+            writer.writeValue(out, value);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,24 @@
+package com.mymicroservice.orderservice.util;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * Opens {@link ScopedTasks} on a shared executor, each with its own deadline of {@code timeout}
+ * counted from the moment the scope is opened.
+ */
+public class ScopedTaskFactory {
+
+    private final AsyncTaskExecutor executor;
+    private final Duration timeout;
+
+    public ScopedTaskFactory(AsyncTaskExecutor executor, Duration timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    public ScopedTasks open() {
+        return new ScopedTasks(executor, timeout);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Scope for subtasks forked from one request, modelled on {@code StructuredTaskScope.ShutdownOnFailure}
+ * (still a preview API in Java 21).
+ * <p>
+ * All subtasks share one deadline. {@link #join()} returns when every subtask has completed, or
+ * cancels the remaining ones and rethrows on the first failure, or cancels all of them
+ * with {@link DeadlineExceededException} once the deadline has passed. Closing the scope cancels
+ * whatever is still running, so no subtask outlives the request that forked it.
+ * <pre>
+ * try (ScopedTasks scope = scopedTaskFactory.open()) {
+ *     Supplier&lt;UserDto&gt; user = scope.fork(() -&gt; userLookupService.getUserById(userId));
+ *     Order order = ...; // independent work on the calling thread
+ *     scope.join();
+ *     return new OrderWithUserResponse(order, user.get());
+ * }
+ * </pre>
+ */
+public class ScopedTasks implements AutoCloseable {
+
+    private final AsyncTaskExecutor executor;
+    private final Duration timeout;
+    private final long deadlineNanos;
+
+    private final List<Future<?>> subtasks = new ArrayList<>();
+    private final List<CompletableFuture<?>> results = new ArrayList<>();
+    private final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+
+    ScopedTasks(AsyncTaskExecutor executor, Duration timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Starts the subtask on the executor. The MDC of the caller is propagated by the executor's task decorator.
+     *
+     * @return supplier of the result, valid after {@link #join()} returned normally
+     */
+    public <T> Supplier<T> fork(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        results.add(result);
+        subtasks.add(executor.submit(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                firstFailure.completeExceptionally(e);
+            }
+        }));
+        return () -> {
+            if (!result.isDone() || result.isCompletedExceptionally()) {
+                throw new IllegalStateException("Subtask has not completed successfully, join() the scope first");
+            }
+            return result.join();
+        };
+    }
+
+    /**
+     * Waits for all subtasks within the shared deadline.
+     *
+     * @throws DeadlineExceededException if the deadline passed before all subtasks completed
+     * @throws RuntimeException the failure of the first failed subtask, unwrapped
+     */
+    public void join() {
+        if (subtasks.isEmpty()) {
+            return;
+        }
+        // all subtasks forked so far, not a running count: a subtask finishing before the next fork mustn't end the wait
+        CompletableFuture<Object> outcome = CompletableFuture.anyOf(firstFailure,
+                CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)));
+        try {
+            outcome.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll();
+            throw new DeadlineExceededException("Subtasks didn't complete within " + timeout);
+        } catch (ExecutionException e) {
+            cancelAll();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // keep FeignException etc., so GlobalAdvice maps it as before
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for subtasks", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        subtasks.forEach(subtask -> subtask.cancel(true));
+    }
+}
@@ -0,0 +1,42 @@
+package com.mymicroservice.orderservice.util;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body serialized once and served many times: the JSON bytes, optionally their gzip-compressed copy,
+ * and a strong ETag of each (the compressed copy is a different representation, so its ETag differs).
+ *
+ * @param gzip compressed JSON, {@code null} when compression is disabled
+ */
+public record SerializedResponse(byte[] json, String etag, byte[] gzip, String gzipEtag) {
+
+    public static SerializedResponse of(byte[] json, boolean compress) {
+        String hash = DigestUtils.md5DigestAsHex(json);
+        return compress
+                ? new SerializedResponse(json, quoted(hash), gzip(json), quoted(hash + "-gzip"))
+                : new SerializedResponse(json, quoted(hash), null, null);
+    }
+
+    public boolean hasGzip() {
+        return gzip != null;
+    }
+
+    private static String quoted(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
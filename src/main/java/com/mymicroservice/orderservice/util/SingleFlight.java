@@ -0,0 +1,152 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller (the leader) runs the call on its own
+ * thread, callers arriving while it is in flight (followers) wait for its outcome instead of repeating it.
+ * Nothing is kept once the call completed, so this is not a cache: it collapses duplicate calls
+ * on cold keys and during expiry storms, when many requests miss the same entry at once.
+ * <p>
+ * Followers wait at most {@code maxWait} and then fail with {@link DeadlineExceededException}.
+ * A failure of a single-key call is shared with its followers. Keys of a bulk call
+ * ({@link #executeAll(Set, Function)}) are released with no value if the bulk call fails or doesn't return them,
+ * and their followers then make their own call; likewise a bulk caller leaves keys whose call in flight
+ * failed out of its result, so it can resolve them itself.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public SingleFlight(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Runs the call, or waits for the call already in flight for this key.
+     *
+     * @throws DeadlineExceededException if the call in flight didn't complete within {@code maxWait}
+     * @throws RuntimeException the failure of the call, unwrapped
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            V value = await(leader, System.nanoTime() + maxWait.toNanos());
+            return value != null ? value : call.get();
+        }
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Runs one bulk call for the keys not in flight yet and waits for the others.
+     * Keys are released before waiting, so two bulk callers never wait for each other.
+     *
+     * @param call bulk call for the keys this caller leads
+     * @return values of the keys that were resolved, by this call or by the ones in flight
+     */
+    public Map<K, V> executeAll(Set<? extends K> keys, Function<Set<K>, Map<K, V>> call) {
+        Map<K, CompletableFuture<V>> led = new HashMap<>();
+        Map<K, CompletableFuture<V>> followed = new HashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+            if (leader == null) {
+                led.put(key, flight);
+            } else {
+                followed.put(key, leader);
+            }
+        }
+        coalesced.add(followed.size());
+
+        Map<K, V> values = new HashMap<>();
+        try {
+            if (!led.isEmpty()) {
+                values.putAll(call.apply(new HashSet<>(led.keySet())));
+            }
+        } finally {
+            led.forEach((key, flight) -> {
+                flight.complete(values.get(key));
+                inFlight.remove(key, flight);
+            });
+        }
+
+        long deadlineNanos = System.nanoTime() + maxWait.toNanos();
+        followed.forEach((key, flight) -> {
+            V value = await(flight.exceptionally(e -> null), deadlineNanos);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * @return number of calls that were served by a call already in flight
+     */
+    public long getCoalescedCalls() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of followers that gave up waiting after {@code maxWait}
+     */
+    public long getTimedOutCalls() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return number of keys with a call in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight, long deadlineNanos) {
+        try {
+            return flight.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new DeadlineExceededException("Call in flight didn't complete within " + maxWait);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the call in flight", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.mymicroservice.orderservice.util;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Tells the client that a response was served without (some of) its users, because
+ * userservice was unavailable and no cached copy existed: the orders are returned with
+ * {@code user = null} and the header {@value #HEADER}{@code : }{@value #SKIPPED}.
+ */
+public class UserEnrichment {
+
+    public static final String HEADER = "X-User-Enrichment";
+    public static final String SKIPPED = "skipped";
+
+    private UserEnrichment() {
+    }
+
+    /**
+     * Sets the header on the response of the current request. Outside a web request
+     * (Kafka listeners, scheduled jobs) or once the response is committed this is a no-op.
+     */
+    public static void markSkipped() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(HEADER, SKIPPED);
+            }
+        }
+    }
+}
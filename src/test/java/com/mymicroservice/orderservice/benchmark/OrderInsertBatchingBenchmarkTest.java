@@ -0,0 +1,126 @@
+package com.mymicroservice.orderservice.benchmark;
+
+import com.mymicroservice.orderservice.config.AbstractContainerTest;
+import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.util.ItemGenerator;
+import com.mymicroservice.orderservice.util.OrderGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares JDBC statements and latency per created order (one order with {@value #LINES_PER_ORDER} lines)
+ * with JDBC batching disabled for the session, which is what IDENTITY IDs forced, and with the pooled
+ * sequence allocation and batched, ordered inserts used now.
+ * <p>
+ * Run explicitly with {@code mvn test -Dtest=OrderInsertBatchingBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OrderInsertBatchingBenchmarkTest extends AbstractContainerTest {
+
+    private static final int ORDERS = 500;
+    private static final int LINES_PER_ORDER = 10;
+    private static final int WARMUP_ORDERS = 100;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private List<Item> items;
+
+    @BeforeEach
+    void init() {
+        orderRepository.deleteAll();
+        itemRepository.deleteAll();
+
+        List<Item> newItems = new ArrayList<>(LINES_PER_ORDER);
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            Item item = ItemGenerator.generateItem();
+            item.setName("item-" + i);
+            newItems.add(item);
+        }
+        items = itemRepository.saveAll(newItems);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void createOrder_batchedInsertsUseFewerStatementsPerOrder() {
+        Result unbatched = measure(1);
+        Result batched = measure(null);
+
+        log.info("per order with {} lines: unbatched {} statements / {} µs, batched {} statements / {} µs",
+                LINES_PER_ORDER, unbatched.statementsPerOrder(), unbatched.microsPerOrder(),
+                batched.statementsPerOrder(), batched.microsPerOrder());
+        assertThat(batched.statementsPerOrder()).isLessThan(unbatched.statementsPerOrder());
+    }
+
+    /**
+     * Creates orders one by one the way {@code createOrder} does (save + flush per order).
+     *
+     * @param jdbcBatchSize batch size for the session, {@code null} for the configured one
+     */
+    private Result measure(Integer jdbcBatchSize) {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        session.setJdbcBatchSize(jdbcBatchSize);
+        Statistics statistics = session.getSessionFactory().unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            createOrder();
+        }
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            createOrder();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result((double) statistics.getPrepareStatementCount() / ORDERS, elapsed / 1_000 / ORDERS);
+    }
+
+    private void createOrder() {
+        Order order = OrderGenerator.generateOrder();
+        order.setOrderItems(new HashSet<>());
+        for (Item item : items) {
+            order.getOrderItems().add(OrderItem.builder()
+                    .order(order)
+                    .item(entityManager.getEntityManager().getReference(Item.class, item.getId()))
+                    .quantity(1L)
+                    .build());
+        }
+        orderRepository.save(order);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private record Result(double statementsPerOrder, long microsPerOrder) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.mymicroservice.orderservice.benchmark;
+
+import com.mymicroservice.orderservice.config.AbstractContainerTest;
+import com.mymicroservice.orderservice.mapper.ItemMapper;
+import com.mymicroservice.orderservice.mapper.OrderItemMapper;
+import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.repository.OrderItemRepository;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.util.ItemGenerator;
+import com.mymicroservice.orderservice.util.OrderGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares allocation per row of the entity read path (managed entities + MapStruct mapper)
+ * with the constructor-expression projections used by the list endpoints.
+ * <p>
+ * Run explicitly with {@code mvn test -Dtest=ProjectionAllocationBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProjectionAllocationBenchmarkTest extends AbstractContainerTest {
+
+    private static final int ROWS = 5_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void init() {
+        orderRepository.deleteAll();
+        itemRepository.deleteAll();
+
+        List<Item> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Item item = ItemGenerator.generateItem();
+            item.setName("item-" + i);
+            items.add(item);
+        }
+        items = itemRepository.saveAll(items);
+
+        List<Order> orders = new ArrayList<>(ROWS);
+        for (Item item : items) {
+            Order order = OrderGenerator.generateOrder();
+            order.setOrderItems(new HashSet<>());
+            order.getOrderItems().add(OrderItem.builder().order(order).item(item).quantity(1L).build());
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void items_projectionAllocatesLessPerRowThanEntities() {
+        double entityPath = bytesPerRow(() -> itemRepository.findAll().stream().map(ItemMapper.INSTANCE::toDto).toList());
+        double projectionPath = bytesPerRow(() -> itemRepository.findAllItemDtos());
+
+        log.info("items: entity path {} B/row, projection {} B/row", Math.round(entityPath), Math.round(projectionPath));
+        assertThat(projectionPath).isLessThan(entityPath);
+    }
+
+    @Test
+    void orderItems_projectionAllocatesLessPerRowThanEntities() {
+        double entityPath = bytesPerRow(() -> orderItemRepository.findAll().stream().map(OrderItemMapper.INSTANCE::toDto).toList());
+        double projectionPath = bytesPerRow(() -> orderItemRepository.findAllOrderItemDtos());
+
+        log.info("order items: entity path {} B/row, projection {} B/row", Math.round(entityPath), Math.round(projectionPath));
+        assertThat(projectionPath).isLessThan(entityPath);
+    }
+
+    /**
+     * Average bytes allocated by the current thread per row; the persistence context is cleared
+     * after every run, so each run pays the full hydration cost.
+     */
+    private double bytesPerRow(Runnable readPath) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            readPath.run();
+            entityManager.clear();
+        }
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = threadMXBean.getCurrentThreadAllocatedBytes();
+            readPath.run();
+            entityManager.clear();
+            allocated += threadMXBean.getCurrentThreadAllocatedBytes() - before;
+        }
+        return (double) allocated / MEASURED_RUNS / ROWS;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mymicroservice.orderservice.benchmark;
+
+import com.mymicroservice.orderservice.util.ConnectionLimitingDataSource;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares request handling on a fixed pool of platform threads (Tomcat's default of {@value #PLATFORM_THREADS})
+ * with a virtual thread per request, at {@value #CONCURRENT_REQUESTS} concurrent requests.
+ * <p>
+ * Each request blocks on a slow downstream ({@value #DOWNSTREAM_LATENCY_MS} ms, like userservice over Feign)
+ * and then holds a DB connection for {@value #DB_HOLD_MS} ms behind {@link ConnectionLimitingDataSource}
+ * with {@value #POOL_SIZE} permits, like a Hikari pool of that size. The downstream runs in the same JVM,
+ * so on few cores the virtual-thread gain is capped by the CPU spent on HTTP, not by waiting.
+ * <p>
+ * Run explicitly with {@code mvn test -Dtest=VirtualThreadLoadBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class VirtualThreadLoadBenchmarkTest {
+
+    private static final int CONCURRENT_REQUESTS = 2_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 10;
+    private static final int DOWNSTREAM_LATENCY_MS = 500;
+    private static final int DB_HOLD_MS = 2;
+
+    private HttpServer downstream;
+    private URI downstreamUri;
+    private DataSource dataSource;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void init() throws Exception {
+        downstream = HttpServer.create(new InetSocketAddress("localhost", 0), CONCURRENT_REQUESTS);
+        downstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        downstream.createContext("/api/users", exchange -> {
+            sleep(DOWNSTREAM_LATENCY_MS);
+            byte[] body = "{\"userId\":1}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        downstream.start();
+        downstreamUri = URI.create("http://localhost:" + downstream.getAddress().getPort() + "/api/users");
+
+        httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(mock(Connection.class));
+        dataSource = new ConnectionLimitingDataSource(pool, POOL_SIZE, Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClient.close();
+        downstream.stop(0);
+    }
+
+    @Test
+    void virtualThreads_serveSlowDownstreamWithHigherThroughput() throws Exception {
+        run("warmup", Executors.newVirtualThreadPerTaskExecutor());
+
+        Result platform = run("platform", Executors.newFixedThreadPool(PLATFORM_THREADS));
+        Result virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor());
+
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput());
+        assertThat(virtual.p99Millis()).isLessThan(platform.p99Millis());
+    }
+
+    private Result run(String mode, ExecutorService executor) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Long>> futures = new ArrayList<>(CONCURRENT_REQUESTS);
+        try (executor) {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    handleRequest();
+                    return System.nanoTime() - submitted;
+                }));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[CONCURRENT_REQUESTS];
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            latencies[i] = futures.get(i).get();
+        }
+        Arrays.sort(latencies);
+        Result result = new Result(CONCURRENT_REQUESTS / elapsedSeconds,
+                latencies[(int) (CONCURRENT_REQUESTS * 0.99) - 1] / 1_000_000);
+        log.info("{}: {} req/s, p99 {} ms", mode, Math.round(result.throughput()), result.p99Millis());
+        return result;
+    }
+
+    /**
+     * One order request: a blocking call to the downstream, then a short transaction.
+     */
+    private void handleRequest() throws Exception {
+        httpClient.send(HttpRequest.newBuilder(downstreamUri).build(), HttpResponse.BodyHandlers.ofByteArray());
+        try (Connection ignored = dataSource.getConnection()) {
+            sleep(DB_HOLD_MS);
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private record Result(double throughput, long p99Millis) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.mymicroservice.orderservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UserServiceHedgingTest {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void call_whenDisabled_thenRunsOnCallingThread() {
+        UserServiceHedging hedging = new UserServiceHedging(executorService, meterRegistry, false,
+                0.95, Duration.ofMillis(50), 0.05);
+        Thread caller = Thread.currentThread();
+
+        assertSame(caller, hedging.call(Thread::currentThread));
+        assertEquals(0, meterRegistry.counter(UserServiceHedging.CALLS_METRIC).count());
+    }
+
+    @Test
+    void call_whenFirstAttemptSlow_thenHedgeAnswers() {
+        UserServiceHedging hedging = warmedUp(0.05);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.call(() -> attempts.incrementAndGet() == 1 ? blockedUntilReleased() : "hedge");
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.counter(UserServiceHedging.HEDGES_METRIC, "result", "won").count());
+    }
+
+    @Test
+    void call_whenBudgetUsedUp_thenWaitsForFirstAttempt() {
+        UserServiceHedging hedging = warmedUp(0.0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.call(() -> {
+            attempts.incrementAndGet();
+            sleep(200);
+            return "first";
+        });
+
+        assertEquals("first", result);
+        assertEquals(1, attempts.get());
+        assertEquals(1, meterRegistry.counter(UserServiceHedging.BUDGET_EXHAUSTED_METRIC).count());
+    }
+
+    @Test
+    void call_whenBothAttemptsFail_thenRethrowsFailureOfFirst() {
+        UserServiceHedging hedging = warmedUp(0.05);
+        RuntimeException firstFailure = new IllegalStateException("first");
+        AtomicInteger attempts = new AtomicInteger();
+
+        Supplier<String> failing = () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(200);
+                throw firstFailure;
+            }
+            throw new IllegalStateException("hedge");
+        };
+
+        assertSame(firstFailure, assertThrows(IllegalStateException.class, () -> hedging.call(failing)));
+    }
+
+    private UserServiceHedging warmedUp(double budget) {
+        UserServiceHedging hedging = new UserServiceHedging(executorService, meterRegistry, true,
+                0.95, Duration.ofMillis(50), budget);
+        for (int i = 0; i < UserServiceHedging.MIN_SAMPLES; i++) {
+            hedging.call(() -> "fast");
+        }
+        return hedging;
+    }
+
+    private String blockedUntilReleased() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "first";
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,40 +4,57 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mymicroservice.orderservice.config.SecurityConfig;
 import com.mymicroservice.orderservice.dto.ItemDto;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
 import com.mymicroservice.orderservice.mapper.ItemMapper;
 import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
 import com.mymicroservice.orderservice.service.ItemService;
+import com.mymicroservice.orderservice.service.impl.ItemResponseCacheImpl;
 import com.mymicroservice.orderservice.util.ItemGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc(addFilters = false)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, ItemResponseCacheImpl.class, ItemControllerTest.MetricsConfig.class})
 @WithMockUser(roles = {"ADMIN", "USER"})
 @WebMvcTest(ItemController.class)
 @Slf4j
@@ -46,12 +63,18 @@ public class ItemControllerTest {
     @MockBean
     private ItemService itemService;
 
+    @MockBean
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ItemResponseCache itemResponseCache;
+
     private final static Long ITEM_ID = 1L;
     private Item testItem;
     private ItemDto testItemDto;
@@ -62,6 +85,16 @@ public class ItemControllerTest {
         testItem.setId(ITEM_ID);
 
         testItemDto = ItemMapper.INSTANCE.toDto(testItem);
+        itemResponseCache.invalidateAllAfterCommit(); // the context, and so the cache, is shared by the tests
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
     }
 
     @Test
@@ -76,6 +109,19 @@ public class ItemControllerTest {
         verify(itemService).getItemById(ITEM_ID);
     }
 
+    @Test
+    public void getItemById_WhenETagMatches_ShouldReturnNotModified() throws Exception {
+        testItemDto.setVersion(2L);
+        log.info("▶ Running test: getItemById_WhenETagMatches_ShouldReturnNotModified, ITEM_ID={}", ITEM_ID);
+        when(itemService.getItemById(ITEM_ID)).thenReturn(testItemDto);
+
+        mockMvc.perform(get("/api/items/{id}", ITEM_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+        mockMvc.perform(get("/api/items/{id}", ITEM_ID).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void getItemById_ShouldReturnNotFound() throws Exception {
         log.info("▶ Running test: getItemById_ShouldReturnNotFound(), _ITEM_ID={}", ITEM_ID);
@@ -109,7 +155,7 @@ public class ItemControllerTest {
         updatedDto.setPrice(BigDecimal.valueOf(101));
         log.info("▶ Running test: updateItem_ShouldReturnUpdatedItemDto, UPDATED_ITEM={}", updatedDto);
 
-        when(itemService.updateItem(ITEM_ID, updatedDto)).thenReturn(updatedDto);
+        when(itemService.updateItem(ITEM_ID, updatedDto, null)).thenReturn(updatedDto);
 
         mockMvc.perform(put("/api/items/{id}", ITEM_ID)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -118,7 +164,7 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.id").value(ITEM_ID))
                 .andExpect(jsonPath("$.price").value(updatedDto.getPrice()));
 
-        verify(itemService).updateItem(ITEM_ID, updatedDto);
+        verify(itemService).updateItem(ITEM_ID, updatedDto, null);
     }
 
     @Test
@@ -129,7 +175,7 @@ public class ItemControllerTest {
         updatedDto.setPrice(BigDecimal.valueOf(101));
         log.info("▶ Running test: updateItem_ShouldReturnNotFound, UPDATED_ITEM={}", updatedDto);
 
-        when(itemService.updateItem(ITEM_ID, updatedDto))
+        when(itemService.updateItem(ITEM_ID, updatedDto, null))
                 .thenThrow(new ItemNotFoundException("Item wasn't found with id " + ITEM_ID));
 
         mockMvc.perform(put("/api/items/{id}", ITEM_ID)
@@ -137,7 +183,23 @@ public class ItemControllerTest {
                         .content(objectMapper.writeValueAsString(updatedDto)))
                 .andExpect(status().isNotFound());
 
-        verify(itemService).updateItem(ITEM_ID, updatedDto);
+        verify(itemService).updateItem(ITEM_ID, updatedDto, null);
+    }
+
+    @Test
+    public void updateItem_WhenUpdatedConcurrently_ShouldReturnConflict() throws Exception {
+        ItemDto updatedDto = ItemMapper.INSTANCE.toDto(ItemGenerator.generateItem());
+        updatedDto.setId(1L);
+        log.info("▶ Running test: updateItem_WhenUpdatedConcurrently_ShouldReturnConflict, UPDATED_ITEM={}", updatedDto);
+
+        // what EntityManager.flush() throws when the row was updated since it was read
+        when(itemService.updateItem(ITEM_ID, updatedDto, null))
+                .thenThrow(new OptimisticLockException("Row was updated or deleted by another transaction"));
+
+        mockMvc.perform(put("/api/items/{id}", ITEM_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedDto)))
+                .andExpect(status().isConflict());
     }
 
     @Test
@@ -219,4 +281,59 @@ public class ItemControllerTest {
 
         verify(itemService).getAllItemsNativeWithPagination(0, 10);
     }
+
+    @Test
+    public void getAllItems_WhenRequestedAgain_ShouldBeServedFromCache() throws Exception {
+        log.info("▶ Running test: getAllItems_WhenRequestedAgain_ShouldBeServedFromCache");
+        when(itemService.getAllItems()).thenReturn(List.of(testItemDto));
+
+        mockMvc.perform(get("/api/items/all")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/items/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(ITEM_ID));
+
+        verify(itemService, times(1)).getAllItems();
+    }
+
+    @Test
+    public void getAllItems_WhenETagMatches_ShouldReturnNotModified() throws Exception {
+        log.info("▶ Running test: getAllItems_WhenETagMatches_ShouldReturnNotModified");
+        when(itemService.getAllItems()).thenReturn(List.of(testItemDto));
+
+        String etag = mockMvc.perform(get("/api/items/all"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/items/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void getAllItemsWithPagination_WhenGzipAccepted_ShouldReturnCompressedBody() throws Exception {
+        log.info("▶ Running test: getAllItemsWithPagination_WhenGzipAccepted_ShouldReturnCompressedBody");
+        when(itemService.getAllItemsNativeWithPagination(0, 10)).thenReturn(new PageImpl<>(List.of(testItemDto)));
+
+        byte[] body = mockMvc.perform(get("/api/items/paginated").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, endsWith("-gzip\"")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(ITEM_ID, objectMapper.readTree(in).at("/content/0/id").asLong());
+        }
+    }
+
+    @Test
+    public void getAllItems_WhenItemWritten_ShouldBeReloaded() throws Exception {
+        log.info("▶ Running test: getAllItems_WhenItemWritten_ShouldBeReloaded");
+        when(itemService.getAllItems()).thenReturn(List.of(testItemDto));
+        mockMvc.perform(get("/api/items/all")).andExpect(status().isOk());
+
+        itemResponseCache.invalidateAllAfterCommit(); // what every write of ItemServiceImpl does
+        mockMvc.perform(get("/api/items/all")).andExpect(status().isOk());
+
+        verify(itemService, times(2)).getAllItems();
+    }
 }
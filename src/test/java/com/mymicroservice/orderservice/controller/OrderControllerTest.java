@@ -2,47 +2,75 @@ package com.mymicroservice.orderservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mymicroservice.orderservice.config.SecurityConfig;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.OrderDto;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.exception.InvalidCursorException;
+import com.mymicroservice.orderservice.exception.InvalidStatusTransitionException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
 import com.mymicroservice.orderservice.mapper.OrderMapper;
 import com.mymicroservice.orderservice.model.Order;
 import com.mymicroservice.orderservice.model.OrderStatus;
 import com.mymicroservice.orderservice.service.OrderService;
+import com.mymicroservice.orderservice.service.OrderStatusStreamService;
+import com.mymicroservice.orderservice.service.impl.OrderStatusStreamServiceImpl;
 import com.mymicroservice.orderservice.util.OrderGenerator;
 import com.mymicroservice.orderservice.util.UserGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc(addFilters = false)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, OrderStatusStreamServiceImpl.class, OrderControllerTest.MetricsConfig.class})
 @WithMockUser(roles = {"ADMIN", "USER"})
 @WebMvcTest(OrderController.class)
 @Slf4j
@@ -51,6 +79,9 @@ public class OrderControllerTest {
     @MockBean
     private OrderService orderService;
 
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -63,6 +94,15 @@ public class OrderControllerTest {
     private UserDto testUserDto;
     private OrderWithUserResponse testOrderWithUserResponse;
 
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @BeforeEach
     void setUp() {
         testOrder = OrderGenerator.generateOrder();
@@ -88,6 +128,119 @@ public class OrderControllerTest {
         verify(orderService).getOrderById(ORDER_ID);
     }
 
+    @Test
+    public void getOrderById_ShouldReturnVersionAsETag() throws Exception {
+        testOrderDto.setVersion(3L);
+        log.info("▶ Running test: getOrderById_ShouldReturnVersionAsETag, ORDER_ID={}", ORDER_ID);
+        when(orderService.getOrderById(ORDER_ID)).thenReturn(testOrderWithUserResponse);
+
+        mockMvc.perform(get("/api/orders/{id}", ORDER_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.order.version").value(3));
+    }
+
+    @Test
+    public void getOrderById_WhenUserNotResolved_ShouldReturnOrderWithoutETag() throws Exception {
+        testOrderDto.setVersion(3L);
+        log.info("▶ Running test: getOrderById_WhenUserNotResolved_ShouldReturnOrderWithoutETag, ORDER_ID={}", ORDER_ID);
+        when(orderService.getOrderById(ORDER_ID)).thenReturn(new OrderWithUserResponse(testOrderDto, null));
+
+        mockMvc.perform(get("/api/orders/{id}", ORDER_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.order.version").value(3));
+    }
+
+    @Test
+    public void getOrderById_WhenETagMatches_ShouldReturnNotModifiedWithoutLoadingOrder() throws Exception {
+        log.info("▶ Running test: getOrderById_WhenETagMatches_ShouldReturnNotModifiedWithoutLoadingOrder, ORDER_ID={}", ORDER_ID);
+        when(orderService.getOrderVersion(ORDER_ID)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/api/orders/{id}", ORDER_ID).header(HttpHeaders.IF_NONE_MATCH, "\"2\", \"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        verify(orderService, never()).getOrderById(any());
+    }
+
+    @Test
+    public void getOrderById_WhenETagIsStale_ShouldReturnOrder() throws Exception {
+        testOrderDto.setVersion(4L);
+        log.info("▶ Running test: getOrderById_WhenETagIsStale_ShouldReturnOrder, ORDER_ID={}", ORDER_ID);
+        when(orderService.getOrderVersion(ORDER_ID)).thenReturn(Optional.of(4L));
+        when(orderService.getOrderById(ORDER_ID)).thenReturn(testOrderWithUserResponse);
+
+        mockMvc.perform(get("/api/orders/{id}", ORDER_ID).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    public void updateOrder_WithIfMatch_ShouldPassExpectedVersion() throws Exception {
+        log.info("▶ Running test: updateOrder_WithIfMatch_ShouldPassExpectedVersion, ORDER_ID={}", ORDER_ID);
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), eq(3L))).thenReturn(testOrderWithUserResponse);
+
+        mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testOrderDto)))
+                .andExpect(status().isOk());
+
+        verify(orderService).updateOrder(eq(ORDER_ID), any(OrderDto.class), eq(3L));
+    }
+
+    @Test
+    public void updateOrder_WhenVersionDiffers_ShouldReturnPreconditionFailed() throws Exception {
+        log.info("▶ Running test: updateOrder_WhenVersionDiffers_ShouldReturnPreconditionFailed, ORDER_ID={}", ORDER_ID);
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), eq(2L)))
+                .thenThrow(new VersionMismatchException("Order with id 1 was modified"));
+
+        mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testOrderDto)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateOrder_WhenUpdatedConcurrently_ShouldReturnConflict() throws Exception {
+        log.info("▶ Running test: updateOrder_WhenUpdatedConcurrently_ShouldReturnConflict, ORDER_ID={}", ORDER_ID);
+        // what EntityManager.flush() throws when the row was updated since it was read
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull()))
+                .thenThrow(new OptimisticLockException("Row was updated or deleted by another transaction"));
+
+        mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testOrderDto)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void updateOrder_WhenStatusTransitionNotAllowed_ShouldReturnConflict() throws Exception {
+        log.info("▶ Running test: updateOrder_WhenStatusTransitionNotAllowed_ShouldReturnConflict, ORDER_ID={}", ORDER_ID);
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull()))
+                .thenThrow(new InvalidStatusTransitionException("Order with id 1 can't be moved from CANCELLED to PROCESSING"));
+
+        mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testOrderDto)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void updateOrder_WhenIfMatchIsWeak_ShouldReturnPreconditionFailed() throws Exception {
+        log.info("▶ Running test: updateOrder_WhenIfMatchIsWeak_ShouldReturnPreconditionFailed, ORDER_ID={}", ORDER_ID);
+
+        mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testOrderDto)))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(orderService);
+    }
+
     @Test
     public void getOrderById_ShouldReturnNotFound() throws Exception {
         log.info("▶ Running test: getOrderById_ShouldReturnNotFound, ORDER_ID={}", ORDER_ID);
@@ -126,7 +279,7 @@ public class OrderControllerTest {
 
         OrderWithUserResponse updatedResponse = new OrderWithUserResponse(updatedDto, testUserDto);
 
-        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class)))
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull()))
                 .thenReturn(updatedResponse);
 
         mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
@@ -136,7 +289,7 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.order.id").value(ORDER_ID))
                 .andExpect(jsonPath("$.order.status").value(OrderStatus.CANCELLED.name()));
 
-        verify(orderService).updateOrder(eq(ORDER_ID), any(OrderDto.class));
+        verify(orderService).updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull());
     }
 
     @Test
@@ -150,7 +303,7 @@ public class OrderControllerTest {
         ));
         log.info("▶ Running test: updateOrder_ShouldReturnNotFound, UPDATED_ORDER={}", updatedDto);
 
-        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class)))
+        when(orderService.updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull()))
                 .thenThrow(new OrderNotFoundException("Order wasn't found with id " + ORDER_ID));
 
         mockMvc.perform(put("/api/orders/{id}", ORDER_ID)
@@ -158,7 +311,7 @@ public class OrderControllerTest {
                         .content(objectMapper.writeValueAsString(updatedDto)))
                 .andExpect(status().isNotFound());
 
-        verify(orderService).updateOrder(eq(ORDER_ID), any(OrderDto.class));
+        verify(orderService).updateOrder(eq(ORDER_ID), any(OrderDto.class), isNull());
     }
 
     @Test
@@ -269,6 +422,32 @@ public class OrderControllerTest {
         verify(orderService).getAllOrders();
     }
 
+    @Test
+    public void exportAllOrders_ShouldStreamOrdersAsNdjson() throws Exception {
+        log.info("▶ Running test: exportAllOrders_ShouldStreamOrdersAsNdjson");
+        doAnswer(invocation -> {
+            Consumer<OrderWithUserResponse> consumer = invocation.getArgument(0);
+            consumer.accept(testOrderWithUserResponse);
+            consumer.accept(testOrderWithUserResponse);
+            return null;
+        }).when(orderService).exportAllOrders(any());
+
+        MvcResult result = mockMvc.perform(get("/api/orders/all")
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines.get(0)).at("/order/id").asLong()).isEqualTo(ORDER_ID);
+        assertThat(objectMapper.readTree(lines.get(0)).at("/user/email").asText()).isEqualTo(testUserDto.getEmail());
+    }
+
     @Test
     public void getAllOrdersWithPagination_ShouldReturnPaginatedOrders() throws Exception {
         log.info("▶ Running test: getAllOrdersWithPagination_ShouldReturnPaginatedOrders, page=0, size=10");
@@ -283,4 +462,120 @@ public class OrderControllerTest {
 
         verify(orderService).getAllOrdersNativeWithPagination(0, 10);
     }
+
+    @Test
+    public void getAllOrdersWithCursor_ShouldReturnPageWithNextCursor() throws Exception {
+        log.info("▶ Running test: getAllOrdersWithCursor_ShouldReturnPageWithNextCursor, limit=1");
+        when(orderService.getAllOrdersWithCursor(null, 1))
+                .thenReturn(new CursorPageDto<>(List.of(testOrderDto), "aWQ6MQ"));
+
+        mockMvc.perform(get("/api/orders/cursor")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(ORDER_ID))
+                .andExpect(jsonPath("$.nextCursor").value("aWQ6MQ"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(orderService).getAllOrdersWithCursor(null, 1);
+    }
+
+    @Test
+    public void getAllOrdersWithCursor_ShouldReturnBadRequestForInvalidCursor() throws Exception {
+        log.info("▶ Running test: getAllOrdersWithCursor_ShouldReturnBadRequestForInvalidCursor");
+        when(orderService.getAllOrdersWithCursor("broken", 50))
+                .thenThrow(new InvalidCursorException("Invalid cursor: broken"));
+
+        mockMvc.perform(get("/api/orders/cursor")
+                        .param("after", "broken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor: broken"));
+    }
+
+    @Test
+    public void getAllOrdersWithCursor_ShouldReturnBadRequestWhenLimitTooLarge() throws Exception {
+        log.info("▶ Running test: getAllOrdersWithCursor_ShouldReturnBadRequestWhenLimitTooLarge");
+
+        mockMvc.perform(get("/api/orders/cursor")
+                        .param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void getByStatusInWithCursor_ShouldReturnOrders() throws Exception {
+        log.info("▶ Running test: getByStatusInWithCursor_ShouldReturnOrders");
+        Set<OrderStatus> statuses = Set.of(OrderStatus.CREATED);
+        when(orderService.findByStatusInWithCursor(statuses, "aWQ6MQ", 10))
+                .thenReturn(new CursorPageDto<>(List.of(testOrderWithUserResponse), null));
+
+        mockMvc.perform(get("/api/orders/find-by-statuses/cursor")
+                        .param("statuses", "CREATED")
+                        .param("after", "aWQ6MQ")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].order.id").value(ORDER_ID))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void streamOrderStatus_ShouldSendCurrentStatusThenTransitionsOfTheOrder() throws Exception {
+        log.info("▶ Running test: streamOrderStatus_ShouldSendCurrentStatusThenTransitionsOfTheOrder");
+        OrderStatusChange current = new OrderStatusChange(ORDER_ID, 2L, OrderStatus.CREATED, 0L);
+        OrderStatusChange paid = new OrderStatusChange(ORDER_ID, 2L, OrderStatus.PAID, 1L);
+        when(orderService.getOrderStatus(ORDER_ID)).thenReturn(Optional.of(current));
+
+        MvcResult result = mockMvc.perform(get("/api/orders/{id}/events", ORDER_ID)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        orderStatusStreamService.dispatch(new OrderStatusChange(99L, 2L, OrderStatus.PAID, 4L));
+        orderStatusStreamService.dispatch(paid);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(statusEvents(result)).hasSize(2));
+        assertThat(statusEvents(result)).containsExactly(
+                objectMapper.writeValueAsString(current), objectMapper.writeValueAsString(paid));
+        assertThat(result.getResponse().getContentAsString()).contains("id:1\n");
+    }
+
+    @Test
+    public void streamUserOrderStatuses_ShouldSendTransitionsOfOrdersOfTheUser() throws Exception {
+        log.info("▶ Running test: streamUserOrderStatuses_ShouldSendTransitionsOfOrdersOfTheUser");
+        OrderStatusChange failed = new OrderStatusChange(7L, 5L, OrderStatus.FAILED, 3L);
+        OrderStatusChange paid = new OrderStatusChange(8L, 5L, OrderStatus.PAID, 2L);
+
+        MvcResult result = mockMvc.perform(get("/api/orders/by-user/{userId}/events", 5L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        orderStatusStreamService.dispatch(failed);
+        orderStatusStreamService.dispatch(new OrderStatusChange(9L, 6L, OrderStatus.PAID, 1L));
+        orderStatusStreamService.dispatch(paid);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(statusEvents(result)).hasSize(2));
+        assertThat(statusEvents(result)).containsExactly(
+                objectMapper.writeValueAsString(failed), objectMapper.writeValueAsString(paid));
+    }
+
+    @Test
+    public void streamOrderStatus_WhenOrderNotFound_ShouldReturnNotFoundAndReleaseSubscription() throws Exception {
+        log.info("▶ Running test: streamOrderStatus_WhenOrderNotFound_ShouldReturnNotFoundAndReleaseSubscription");
+        when(orderService.getOrderStatus(ORDER_ID)).thenReturn(Optional.empty());
+        int subscribers = orderStatusStreamService.getSubscriberCount();
+
+        mockMvc.perform(get("/api/orders/{id}/events", ORDER_ID)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+
+        assertThat(orderStatusStreamService.getSubscriberCount()).isEqualTo(subscribers);
+    }
+
+    private static List<String> statusEvents(MvcResult result) throws Exception {
+        return Arrays.stream(result.getResponse().getContentAsString().split("\n\n"))
+                .filter(event -> event.contains("event:" + OrderStatusStreamServiceImpl.STATUS_EVENT))
+                .map(event -> event.lines().filter(line -> line.startsWith("data:")).findFirst().orElseThrow().substring(5))
+                .toList();
+    }
 }
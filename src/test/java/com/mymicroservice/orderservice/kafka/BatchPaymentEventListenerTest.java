@@ -0,0 +1,116 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.service.OrderService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mymicroservices.common.events.PaymentEventDto;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchPaymentEventListenerTest {
+
+    @InjectMocks
+    private BatchPaymentEventListener listener;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private Acknowledgment ack;
+
+    @Test
+    void onCreatePayments_thenCollapsesDuplicatesAndUpdatesInBulk() {
+        List<ConsumerRecord<String, PaymentEventDto>> records = List.of(
+                record(0, "1", "FAILED"),
+                record(1, "2", "PAID"),
+                record(2, "1", "PAID"),
+                record(3, "3", "SOMETHING"));
+
+        listener.onCreatePayments(records, ack);
+
+        Map<Long, OrderStatus> expected = new LinkedHashMap<>();
+        expected.put(2L, OrderStatus.PAID);
+        expected.put(1L, OrderStatus.PAID);
+        expected.put(3L, OrderStatus.FAILED);
+        verify(orderService, times(1)).updateOrderStatuses(expected);
+        verify(orderService, never()).updateOrderStatus(1L, OrderStatus.PAID);
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void onCreatePayments_whenEventsInvalid_thenSkipsThemAndAcknowledges() {
+        List<ConsumerRecord<String, PaymentEventDto>> records = List.of(
+                new ConsumerRecord<>("create-payment", 0, 0, "k", null),
+                record(1, null, "PAID"),
+                record(2, "abc", "PAID"),
+                record(3, "4", null));
+
+        listener.onCreatePayments(records, ack);
+
+        verifyNoInteractions(orderService);
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void onCreatePayments_whenBulkUpdateFails_thenReportsFailingRecord() {
+        ConsumerRecord<String, PaymentEventDto> failing = record(1, "2", "PAID");
+        List<ConsumerRecord<String, PaymentEventDto>> records = List.of(record(0, "1", "PAID"), failing, record(2, "3", "PAID"));
+        when(orderService.updateOrderStatuses(anyMap())).thenThrow(new IllegalStateException("deadlock"));
+        lenient().doThrow(new IllegalStateException("deadlock")).when(orderService).updateOrderStatus(2L, OrderStatus.PAID);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> listener.onCreatePayments(records, ack));
+
+        assertSame(failing, exception.getRecord());
+        verify(orderService, times(1)).updateOrderStatus(1L, OrderStatus.PAID);
+        verify(orderService, never()).updateOrderStatus(3L, OrderStatus.PAID);
+        verify(ack, never()).acknowledge();
+    }
+
+    @Test
+    void onCreatePayments_whenTransitionNotAppliedInFallback_thenSkipsIt() {
+        List<ConsumerRecord<String, PaymentEventDto>> records = List.of(record(0, "1", "PAID"), record(1, "2", "FAILED"));
+        when(orderService.updateOrderStatuses(anyMap())).thenThrow(new IllegalStateException("deadlock"));
+        when(orderService.updateOrderStatus(1L, OrderStatus.PAID)).thenReturn(false);
+
+        listener.onCreatePayments(records, ack);
+
+        verify(orderService, times(1)).updateOrderStatus(2L, OrderStatus.FAILED);
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void toOrderStatus_whenUnknown_thenFailed() {
+        assertEquals(OrderStatus.PAID, PaymentEventListener.toOrderStatus("PAID"));
+        assertEquals(OrderStatus.FAILED, PaymentEventListener.toOrderStatus("REFUNDED"));
+    }
+
+    private ConsumerRecord<String, PaymentEventDto> record(long offset, String orderId, String status) {
+        PaymentEventDto event = new PaymentEventDto();
+        event.setOrderId(orderId);
+        event.setStatus(status);
+        return new ConsumerRecord<>("create-payment", 0, offset, orderId, event);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.repository.SecondLevelCacheEvictor;
+import com.mymicroservice.orderservice.service.ItemCatalogCache;
+import com.mymicroservice.orderservice.service.ItemResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheInvalidationListenerTest {
+
+    @InjectMocks
+    private CacheInvalidationListener listener;
+
+    @Mock
+    private ItemCatalogCache itemCatalogCache;
+
+    @Mock
+    private ItemResponseCache itemResponseCache;
+
+    @Mock
+    private SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    @Test
+    void onInvalidation_whenItems_thenEvictsFromItemCatalogAndSecondLevelCache() {
+        listener.onInvalidation(new CacheInvalidation(CacheInvalidation.Type.ITEMS, List.of(1L, 2L)));
+
+        verify(itemCatalogCache, times(1)).invalidate(List.of(1L, 2L));
+        verify(secondLevelCacheEvictor, times(1)).evictItems(List.of(1L, 2L));
+        verifyNoInteractions(itemResponseCache);
+    }
+
+    @Test
+    void onInvalidation_whenItemResponses_thenDropsAllResponses() {
+        listener.onInvalidation(new CacheInvalidation(CacheInvalidation.Type.ITEM_RESPONSES, List.of()));
+
+        verify(itemResponseCache, times(1)).invalidateAll();
+        verifyNoInteractions(itemCatalogCache);
+    }
+
+    @Test
+    void onInvalidation_whenOrders_thenEvictsOrdersFromSecondLevelCache() {
+        listener.onInvalidation(new CacheInvalidation(CacheInvalidation.Type.ORDERS, List.of(1L)));
+
+        verify(secondLevelCacheEvictor, times(1)).evictOrders(List.of(1L));
+        verifyNoInteractions(itemCatalogCache, itemResponseCache);
+    }
+
+    @Test
+    void onInvalidation_whenOrderItems_thenEvictsOrderItemsFromSecondLevelCache() {
+        listener.onInvalidation(new CacheInvalidation(CacheInvalidation.Type.ORDER_ITEMS, List.of(3L, 4L)));
+
+        verify(secondLevelCacheEvictor, times(1)).evictOrderItems(List.of(3L, 4L));
+        verifyNoInteractions(itemCatalogCache, itemResponseCache);
+    }
+}
@@ -0,0 +1,42 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.repository.SecondLevelCacheEvictor;
+import com.mymicroservice.orderservice.service.OrderStatusStreamService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderStatusChangeListenerTest {
+
+    @InjectMocks
+    private OrderStatusChangeListener listener;
+
+    @Mock
+    private OrderStatusStreamService orderStatusStreamService;
+
+    @Mock
+    private SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    @Test
+    void onStatusChange_thenEvictsOrderAndDispatchesToLocalSubscribers() {
+        OrderStatusChange change = new OrderStatusChange(1L, 10L, OrderStatus.PAID, 1L);
+
+        listener.onStatusChange(change);
+
+        // evicted first: a subscriber reading the order on the event gets the new status
+        InOrder inOrder = inOrder(secondLevelCacheEvictor, orderStatusStreamService);
+        inOrder.verify(secondLevelCacheEvictor, times(1)).evictOrders(List.of(1L));
+        inOrder.verify(orderStatusStreamService, times(1)).dispatch(change);
+    }
+}
@@ -0,0 +1,72 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.service.OutboxService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private OutboxService outboxService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        outboxRelay = new OutboxRelay(outboxService, new DataSourceProperties(), meterRegistry,
+                BATCH_SIZE, Duration.ofSeconds(5), Duration.ofDays(7));
+    }
+
+    @Test
+    void drain_whenBatchesFull_thenContinuesUntilPartialBatch() {
+        when(outboxService.relayBatch(BATCH_SIZE)).thenReturn(BATCH_SIZE, BATCH_SIZE, 1);
+
+        outboxRelay.drain();
+
+        verify(outboxService, times(3)).relayBatch(BATCH_SIZE);
+        assertEquals(5.0, meterRegistry.get(OutboxRelay.PUBLISHED_METRIC).counter().count());
+    }
+
+    @Test
+    void refreshBacklog_thenPublishesPendingAndLag() {
+        when(outboxService.countPending()).thenReturn(42L);
+        when(outboxService.getLag()).thenReturn(Duration.ofSeconds(3));
+
+        outboxRelay.refreshBacklog();
+
+        assertEquals(42.0, meterRegistry.get(OutboxRelay.PENDING_METRIC).gauge().value());
+        assertEquals(3.0, meterRegistry.get(OutboxRelay.LAG_METRIC).timeGauge().value(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void relay_whenRelayingFails_thenBacklogIsStillRefreshed() {
+        when(outboxService.relayBatch(BATCH_SIZE)).thenThrow(new IllegalStateException("broker unavailable"));
+        when(outboxService.countPending()).thenReturn(7L);
+        when(outboxService.getLag()).thenReturn(Duration.ofSeconds(30));
+
+        assertThrows(IllegalStateException.class, outboxRelay::relay);
+
+        assertEquals(7.0, meterRegistry.get(OutboxRelay.PENDING_METRIC).gauge().value());
+        assertEquals(30.0, meterRegistry.get(OutboxRelay.LAG_METRIC).timeGauge().value(TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,120 @@
+package com.mymicroservice.orderservice.kafka;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.service.UserProjectionService;
+import com.mymicroservice.orderservice.util.UserGenerator;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserEventListenerTest {
+
+    @InjectMocks
+    private UserEventListener listener;
+
+    @Mock
+    private UserProjectionService userProjectionService;
+
+    @Mock
+    private Acknowledgment ack;
+
+    @Mock
+    private Consumer<String, UserDto> consumer;
+
+    @Test
+    void onUserEvents_thenAppliesLatestStatePerUserWithTombstones() {
+        UserDto oldState = user(1L, "old@test.by");
+        UserDto newState = user(1L, "new@test.by");
+        UserDto secondUser = user(2L, "second@test.by");
+        List<ConsumerRecord<String, UserDto>> records = List.of(
+                record(0, "1", oldState),
+                record(1, "2", secondUser),
+                record(2, "1", newState),
+                record(3, "3", null));
+        when(consumer.currentLag(new TopicPartition("user-events", 0))).thenReturn(OptionalLong.of(5L));
+
+        listener.onUserEvents(records, ack, consumer);
+
+        Map<Long, UserDto> expected = new LinkedHashMap<>();
+        expected.put(1L, newState);
+        expected.put(2L, secondUser);
+        expected.put(3L, null);
+        verify(userProjectionService, times(1)).applyUserEvents(expected);
+        verify(ack, times(1)).acknowledge();
+        verify(userProjectionService, times(1)).recordLag(Map.of(0, 5L));
+    }
+
+    @Test
+    void onUserEvents_whenUserIdMissing_thenSkipsEventAndAcknowledges() {
+        UserDto withoutId = user(null, "anonymous@test.by");
+
+        listener.onUserEvents(List.of(record(0, null, withoutId), record(1, "abc", null)), ack, consumer);
+
+        verify(userProjectionService, never()).applyUserEvents(any());
+        verify(ack, times(1)).acknowledge();
+    }
+
+    @Test
+    void onIdle_whenUserProjectionContainer_thenItsPartitionsCaughtUp() {
+        ListenerContainerIdleEvent event = idleEvent(UserEventListener.LISTENER_ID + "-1");
+        when(event.getTopicPartitions()).thenReturn(List.of(new TopicPartition("user-events", 2), new TopicPartition("user-events", 3)));
+
+        listener.onIdle(event);
+
+        verify(userProjectionService, times(1)).recordLag(Map.of(2, 0L, 3, 0L));
+    }
+
+    @Test
+    void onIdle_whenOtherContainer_thenProjectionNotMarked() {
+        listener.onIdle(idleEvent("other-listener-0"));
+
+        verifyNoInteractions(userProjectionService);
+    }
+
+    @Test
+    void onPartitionsAssignedAndRevoked_thenProjectionTracksAssignedPartitions() {
+        listener.onPartitionsAssigned(Map.of(new TopicPartition("user-events", 1), 0L), null);
+        listener.onPartitionsRevoked(List.of(new TopicPartition("user-events", 1)));
+
+        verify(userProjectionService, times(1)).partitionsAssigned(List.of(1));
+        verify(userProjectionService, times(1)).partitionsRevoked(List.of(1));
+    }
+
+    private static ListenerContainerIdleEvent idleEvent(String listenerId) {
+        ListenerContainerIdleEvent event = mock(ListenerContainerIdleEvent.class);
+        when(event.getListenerId()).thenReturn(listenerId);
+        return event;
+    }
+
+    private static UserDto user(Long userId, String email) {
+        UserDto user = UserGenerator.generateUserResponse();
+        user.setUserId(userId);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static ConsumerRecord<String, UserDto> record(long offset, String key, UserDto value) {
+        return new ConsumerRecord<>("user-events", 0, offset, key, value);
+    }
+}
@@ -1,25 +1,35 @@
 package com.mymicroservice.orderservice.repository;
 
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import com.mymicroservice.orderservice.util.ItemGenerator;
 import com.mymicroservice.orderservice.util.OrderGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import com.mymicroservice.orderservice.config.AbstractContainerTest;
 import com.mymicroservice.orderservice.model.OrderStatus;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @Slf4j
 @DataJpaTest
@@ -29,6 +39,9 @@ public class OrderRepositoryTest extends AbstractContainerTest{
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private static Order expectedOrder;
 
     @BeforeAll
@@ -117,4 +130,82 @@ public class OrderRepositoryTest extends AbstractContainerTest{
 
         assertThat(page.getContent()).isEmpty();
     }
+
+    @Test
+    void findAll_shouldFetchOrderItemsTogetherWithOrders() {
+        log.info("Test findAll - should load order items with the orders (no lazy loads)");
+        saveOrderWithItemAndClearContext();
+
+        List<Order> result = orderRepository.findAll();
+
+        assertThat(result).isNotEmpty();
+        assertThat(result).allMatch(order -> Hibernate.isInitialized(order.getOrderItems()));
+    }
+
+    @Test
+    void findOrdersByUserId_shouldFetchOrderItemsTogetherWithOrders() {
+        log.info("Test findOrdersByUserId - should load order items with the orders (no lazy loads)");
+        Order saved = saveOrderWithItemAndClearContext();
+
+        List<Order> result = orderRepository.findOrdersByUserId(saved.getUserId());
+
+        assertThat(result).isNotEmpty();
+        assertThat(result).allMatch(order -> Hibernate.isInitialized(order.getOrderItems()));
+        assertThat(result).filteredOn(order -> order.getId().equals(saved.getId()))
+                .singleElement()
+                .satisfies(order -> assertThat(order.getOrderItems()).hasSize(1));
+    }
+
+    @Test
+    void findByIdGreaterThanOrderByIdAsc_shouldReturnNextKeysetPage() {
+        log.info("Test findByIdGreaterThanOrderByIdAsc - should return orders after the given ID");
+        Order second = orderRepository.save(OrderGenerator.generateOrder());
+        Order third = orderRepository.save(OrderGenerator.generateOrder());
+
+        List<Order> firstPage = orderRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        List<Order> nextPage = orderRepository.findByIdGreaterThanOrderByIdAsc(second.getId(), Limit.of(2));
+
+        assertThat(firstPage).extracting(Order::getId).containsExactly(expectedOrder.getId(), second.getId());
+        assertThat(nextPage).extracting(Order::getId).containsExactly(third.getId());
+    }
+
+    private Order saveOrderWithItemAndClearContext() {
+        Item item = entityManager.persist(ItemGenerator.generateItem());
+        Order order = OrderGenerator.generateOrder();
+        order.setOrderItems(new HashSet<>());
+        order.getOrderItems().add(OrderItem.builder().order(order).item(item).quantity(2L).build());
+        Order saved = orderRepository.save(order);
+        entityManager.flush();
+        entityManager.clear();
+        return saved;
+    }
+
+    @Test
+    void transitionStatus_shouldApplyOnlyFromAllowedStatuses() {
+        log.info("Test transitionStatus - should update the status only when the current one allows the transition");
+        Order order = OrderGenerator.generateOrder();
+        order.setStatus(OrderStatus.PAID);
+        Long orderId = orderRepository.save(order).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Optional<OrderStatusChange> lateProcessing = orderRepository.transitionStatus(orderId, OrderStatus.PROCESSING, OrderStatus.PROCESSING.allowedFrom());
+        Optional<OrderStatusChange> missingOrder = orderRepository.transitionStatus(999_999L, OrderStatus.PAID, OrderStatus.PAID.allowedFrom());
+
+        assertTrue(lateProcessing.isEmpty());
+        assertTrue(missingOrder.isEmpty());
+        assertEquals(OrderStatus.PAID, entityManager.find(Order.class, orderId).getStatus());
+
+        order = entityManager.find(Order.class, orderId);
+        order.setStatus(OrderStatus.CREATED);
+        entityManager.flush();
+        entityManager.clear();
+
+        Long version = entityManager.find(Order.class, orderId).getVersion();
+        entityManager.clear();
+
+        assertEquals(Optional.of(new OrderStatusChange(orderId, order.getUserId(), OrderStatus.PROCESSING, version + 1)),
+                orderRepository.transitionStatus(orderId, OrderStatus.PROCESSING, OrderStatus.PROCESSING.allowedFrom()));
+        assertEquals(OrderStatus.PROCESSING, entityManager.find(Order.class, orderId).getStatus());
+    }
 }
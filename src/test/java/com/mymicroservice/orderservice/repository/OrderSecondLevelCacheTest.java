@@ -0,0 +1,181 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.config.AbstractContainerTest;
+import com.mymicroservice.orderservice.config.HibernateCacheConfig;
+import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.util.ItemGenerator;
+import com.mymicroservice.orderservice.util.OrderGenerator;
+import com.mymicroservice.orderservice.util.OrderItemGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HibernateCacheConfig.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // entries are cached when transactions commit
+public class OrderSecondLevelCacheTest extends AbstractContainerTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private Long transitionedOrderId;
+    private Long untouchedOrderId;
+
+    @BeforeEach
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.deleteAll();
+            itemRepository.deleteAll();
+        });
+        List<Order> orders = transactionTemplate.execute(status -> orderRepository.saveAll(List.of(
+                createdOrder(), createdOrder())));
+        transitionedOrderId = orders.get(0).getId();
+        untouchedOrderId = orders.get(1).getId();
+        entityManagerFactory.getCache().evictAll(); // inserted orders are cached on commit, tests start cold
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    @Test
+    void findById_whenLoadedBefore_thenServedFromCacheWithItsOrderItems() {
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(untouchedOrderId).orElseThrow().getOrderItems().size());
+
+        int orderItems = transactionTemplate.execute(status ->
+                orderRepository.findById(untouchedOrderId).orElseThrow().getOrderItems().size());
+
+        assertEquals(0, orderItems); // an empty collection is cached as well
+        assertEquals(1, region(Order.CACHE_REGION).getHitCount());
+        assertEquals(1, region(Order.ORDER_ITEMS_CACHE_REGION).getHitCount());
+    }
+
+    @Test
+    void transitionStatus_thenOnlyTransitionedOrderIsReloaded() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(transitionedOrderId).orElseThrow();
+            orderRepository.findById(untouchedOrderId).orElseThrow();
+        });
+
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.transitionStatus(transitionedOrderId, OrderStatus.PAID, OrderStatus.PAID.allowedFrom()));
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+
+        Order transitioned = transactionTemplate.execute(status ->
+                orderRepository.findById(transitionedOrderId).orElseThrow());
+        transactionTemplate.executeWithoutResult(status -> orderRepository.findById(untouchedOrderId).orElseThrow());
+
+        assertEquals(OrderStatus.PAID, transitioned.getStatus());
+        assertEquals(1L, transitioned.getVersion());
+        assertEquals(1, region(Order.CACHE_REGION).getHitCount());
+        assertEquals(1, region(Order.CACHE_REGION).getMissCount());
+    }
+
+    @Test
+    void orderItemsChanged_thenVersionIsIncrementedAndCollectionIsReloaded() {
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(untouchedOrderId).orElseThrow().getOrderItems().size());
+
+        transactionTemplate.executeWithoutResult(status -> orderRepository.orderItemsChanged(List.of(untouchedOrderId)));
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+        Long version = transactionTemplate.execute(status -> {
+            Order order = orderRepository.findById(untouchedOrderId).orElseThrow();
+            order.getOrderItems().size();
+            return order.getVersion();
+        });
+
+        assertEquals(1L, version);
+        assertEquals(Optional.of(1L), orderRepository.findVersionById(untouchedOrderId));
+        assertEquals(0, region(Order.ORDER_ITEMS_CACHE_REGION).getHitCount());
+    }
+
+    @Test
+    void deleteItem_whenOrdered_thenVersionOfOrderIsIncrementedAndDeletedOrderItemIsGone() {
+        transactionTemplate.executeWithoutResult(status -> {
+            OrderItem orderItem = OrderItemGenerator.generateOrderItem();
+            orderItem.setOrder(orderRepository.findById(untouchedOrderId).orElseThrow());
+            orderItem.setItem(itemRepository.save(ItemGenerator.generateItem()));
+            orderItemRepository.save(orderItem);
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(untouchedOrderId).orElseThrow().getOrderItems().size());
+
+        // what ItemServiceImpl.deleteItem does: the order items go with the item (cascade)
+        transactionTemplate.executeWithoutResult(status -> {
+            Item item = itemRepository.findAll().get(0);
+            List<Long> orderIds = item.getOrderItems().stream().map(orderItem -> orderItem.getOrder().getId()).toList();
+            itemRepository.deleteById(item.getId());
+            orderRepository.orderItemsChanged(orderIds);
+        });
+        Order order = transactionTemplate.execute(status -> {
+            Order reloaded = orderRepository.findById(untouchedOrderId).orElseThrow();
+            reloaded.getOrderItems().size();
+            return reloaded;
+        });
+
+        assertEquals(1L, order.getVersion());
+        assertEquals(0, order.getOrderItems().size());
+    }
+
+    @Test
+    void evictOrders_whenChangedOnAnotherInstance_thenReloadedWithCurrentRow() {
+        transactionTemplate.executeWithoutResult(status -> orderRepository.findById(untouchedOrderId).orElseThrow());
+        // another instance commits a transition: the row changes without this instance's Hibernate noticing
+        jdbcTemplate.update("UPDATE orders SET status = 'PAID', version = version + 1 WHERE id = ?", untouchedOrderId);
+        Order stale = transactionTemplate.execute(status -> orderRepository.findById(untouchedOrderId).orElseThrow());
+
+        new SecondLevelCacheEvictor(entityManagerFactory).evictOrders(List.of(untouchedOrderId));
+        Order current = transactionTemplate.execute(status -> orderRepository.findById(untouchedOrderId).orElseThrow());
+
+        assertEquals(OrderStatus.CREATED, stale.getStatus());
+        assertEquals(OrderStatus.PAID, current.getStatus());
+        assertEquals(1L, current.getVersion());
+    }
+
+    private CacheRegionStatistics region(String region) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getDomainDataRegionStatistics(region);
+    }
+
+    private static Order createdOrder() {
+        Order order = OrderGenerator.generateOrder();
+        order.setStatus(OrderStatus.CREATED);
+        return order;
+    }
+}
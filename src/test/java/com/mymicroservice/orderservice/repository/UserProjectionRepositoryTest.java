@@ -0,0 +1,58 @@
+package com.mymicroservice.orderservice.repository;
+
+import com.mymicroservice.orderservice.config.AbstractContainerTest;
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.model.UserProjection;
+import com.mymicroservice.orderservice.util.UserGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class UserProjectionRepositoryTest extends AbstractContainerTest {
+
+    @Autowired
+    private UserProjectionRepository userProjectionRepository;
+
+    @BeforeEach
+    void init() {
+        userProjectionRepository.deleteAll();
+    }
+
+    @Test
+    void upsertAll_shouldInsertNewUsersAndOverwriteExistingOnes() {
+        log.info("Test upsertAll - should insert new users and overwrite existing ones");
+        UserDto user = UserGenerator.generateUserResponse();
+        userProjectionRepository.upsertAll(List.of(user));
+
+        user.setEmail("changed@test.by");
+        UserDto secondUser = UserGenerator.generateUserResponse();
+        secondUser.setUserId(2L);
+        userProjectionRepository.upsertAll(List.of(user, secondUser));
+
+        List<UserProjection> result = userProjectionRepository.findAllByUserIdIn(Set.of(1L, 2L));
+        assertThat(result).hasSize(2);
+        assertThat(userProjectionRepository.findById(1L)).get()
+                .extracting(UserProjection::getEmail).isEqualTo("changed@test.by");
+    }
+
+    @Test
+    void findFirstByEmail_shouldReturnUserWithGivenEmail() {
+        log.info("Test findFirstByEmail - should return the user with the given email");
+        UserDto user = UserGenerator.generateUserResponse();
+        userProjectionRepository.upsertAll(List.of(user));
+
+        assertThat(userProjectionRepository.findFirstByEmail(user.getEmail())).get()
+                .extracting(UserProjection::getUserId).isEqualTo(user.getUserId());
+    }
+}
@@ -0,0 +1,124 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.ItemDto;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.service.impl.ItemCatalogCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemCatalogCacheImplTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ItemCatalogCache itemCatalogCache;
+
+    private final ItemDto firstItem = new ItemDto(1L, "first", BigDecimal.valueOf(10), 0L);
+    private final ItemDto secondItem = new ItemDto(2L, "second", BigDecimal.valueOf(20), 0L);
+
+    @BeforeEach
+    void setUp() {
+        itemCatalogCache = new ItemCatalogCacheImpl(itemRepository, cacheInvalidationPublisher, meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getAll_whenSomeItemsCached_thenLoadsOnlyMissingWithOneQuery() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L))).thenReturn(List.of(firstItem));
+        when(itemRepository.findItemDtosByIdIn(Set.of(2L, 3L))).thenReturn(List.of(secondItem));
+        itemCatalogCache.get(1L);
+
+        Map<Long, ItemDto> items = itemCatalogCache.getAll(List.of(1L, 2L, 3L, 2L));
+
+        assertEquals(Map.of(1L, firstItem, 2L, secondItem), items);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(2L, 3L));
+    }
+
+    @Test
+    void getAll_whenCalledAgain_thenServedFromCache() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L, 2L))).thenReturn(List.of(firstItem, secondItem));
+
+        itemCatalogCache.getAll(Set.of(1L, 2L));
+        Map<Long, ItemDto> items = itemCatalogCache.getAll(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstItem, 2L, secondItem), items);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(any());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "items").tag("result", "hit")
+                .functionCounter().count(), 0.0);
+    }
+
+    @Test
+    void invalidateAfterCommit_whenInTransaction_thenEvictsOnlyAfterCommit() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L))).thenReturn(List.of(firstItem));
+        itemCatalogCache.get(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        itemCatalogCache.invalidateAfterCommit(1L);
+        itemCatalogCache.get(1L);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(1L));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        itemCatalogCache.get(1L);
+        verify(itemRepository, times(2)).findItemDtosByIdIn(Set.of(1L));
+        // other instances evict it as well
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ITEMS, List.of(1L));
+    }
+
+    @Test
+    void invalidate_whenChangedOnAnotherInstance_thenReloaded() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L, 2L))).thenReturn(List.of(firstItem, secondItem));
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L))).thenReturn(List.of());
+        itemCatalogCache.getAll(Set.of(1L, 2L));
+
+        itemCatalogCache.invalidate(List.of(1L));
+
+        assertEquals(Map.of(2L, secondItem), itemCatalogCache.getAll(Set.of(1L, 2L)));
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(1L));
+    }
+
+    @Test
+    void putAfterCommit_whenTransactionRolledBack_thenNothingIsCached() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(1L))).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+
+        itemCatalogCache.putAfterCommit(firstItem);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(Optional.empty(), itemCatalogCache.get(1L));
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(1L));
+    }
+}
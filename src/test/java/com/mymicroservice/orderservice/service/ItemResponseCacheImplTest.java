@@ -0,0 +1,76 @@
+package com.mymicroservice.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.service.impl.ItemResponseCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemResponseCacheImplTest {
+
+    @Mock
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    private ItemResponseCache itemResponseCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        itemResponseCache = new ItemResponseCacheImpl(new ObjectMapper(), cacheInvalidationPublisher,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(1), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void invalidateAllAfterCommit_thenDroppedAfterCommitHereAndPublishedForOtherInstances() {
+        itemResponseCache.get("all", this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        itemResponseCache.invalidateAllAfterCommit();
+        itemResponseCache.get("all", this::load);
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        itemResponseCache.get("all", this::load);
+        assertEquals(2, loads.get());
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ITEM_RESPONSES);
+    }
+
+    @Test
+    void invalidateAll_whenItemsChangedOnAnotherInstance_thenResponsesRebuilt() {
+        itemResponseCache.get("all", this::load);
+
+        itemResponseCache.invalidateAll();
+        itemResponseCache.get("all", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private List<String> load() {
+        loads.incrementAndGet();
+        return List.of("item");
+    }
+}
@@ -1,24 +1,39 @@
 package com.mymicroservice.orderservice.service;
 
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
 import com.mymicroservice.orderservice.dto.ItemDto;
+import com.mymicroservice.orderservice.exception.InvalidCursorException;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
 import com.mymicroservice.orderservice.mapper.ItemMapper;
 import com.mymicroservice.orderservice.model.Item;
+import com.mymicroservice.orderservice.model.Order;
+import com.mymicroservice.orderservice.model.OrderItem;
 import com.mymicroservice.orderservice.repository.ItemRepository;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.service.impl.ItemCatalogCacheImpl;
 import com.mymicroservice.orderservice.service.impl.ItemServiceImpl;
+import com.mymicroservice.orderservice.util.CursorUtil;
 import com.mymicroservice.orderservice.util.ItemGenerator;
+import com.mymicroservice.orderservice.util.OrderItemGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -27,8 +42,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,12 +55,23 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 public class ItemServiceImplTest {
 
-    @InjectMocks
     private ItemServiceImpl itemService;
 
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ItemResponseCache itemResponseCache;
+
+    @Mock
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    @Mock
+    private OrderRepository orderRepository;
+
     private final static Long TEST_ITEM_ID = 1L;
     private Item testItem;
     private ItemDto testItemDto;
@@ -51,8 +80,14 @@ public class ItemServiceImplTest {
     void setUp() {
         testItem = ItemGenerator.generateItem();
         testItem.setId(TEST_ITEM_ID);
+        testItem.setOrderItems(new HashSet<>());
 
         testItemDto = ItemMapper.INSTANCE.toDto(testItem);
+
+        ItemCatalogCache itemCatalogCache = new ItemCatalogCacheImpl(itemRepository, cacheInvalidationPublisher, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10));
+        itemService = new ItemServiceImpl(itemRepository, entityManager, itemCatalogCache, itemResponseCache,
+                orderRepository, cacheInvalidationPublisher);
     }
 
     @Test
@@ -65,27 +100,50 @@ public class ItemServiceImplTest {
         assertEquals(testItemDto, result);
 
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemResponseCache, times(1)).invalidateAllAfterCommit();
+    }
+
+    @Test
+    void createItem_thenCreatedItemIsServedFromCache() {
+        when(itemRepository.save(any(Item.class))).thenReturn(testItem);
+
+        itemService.createItem(testItemDto);
+
+        assertEquals(testItemDto, itemService.getItemById(TEST_ITEM_ID));
+        verify(itemRepository, never()).findItemDtosByIdIn(any());
     }
 
     @Test
     void getItemById_whenIdExists_thenReturnsItemDto() {
-        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
+        when(itemRepository.findItemDtosByIdIn(Set.of(TEST_ITEM_ID))).thenReturn(List.of(testItemDto));
 
         ItemDto result = itemService.getItemById(TEST_ITEM_ID);
 
         assertNotNull(result);
         assertEquals(testItemDto, result);
 
-        verify(itemRepository, times(1)).findById(TEST_ITEM_ID);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(TEST_ITEM_ID));
+    }
+
+    @Test
+    void getItemById_whenCalledAgain_thenServedFromCache() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(TEST_ITEM_ID))).thenReturn(List.of(testItemDto));
+
+        itemService.getItemById(TEST_ITEM_ID);
+        ItemDto result = itemService.getItemById(TEST_ITEM_ID);
+
+        assertEquals(testItemDto, result);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(TEST_ITEM_ID));
+        verify(itemRepository, never()).findById(anyLong());
     }
 
     @Test
     void getItemById_whenIdNotExist_thenThrowsException() {
-        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.empty());
+        when(itemRepository.findItemDtosByIdIn(Set.of(TEST_ITEM_ID))).thenReturn(List.of());
 
         assertThrows(ItemNotFoundException.class, () -> itemService.getItemById(TEST_ITEM_ID));
 
-        verify(itemRepository, times(1)).findById(TEST_ITEM_ID);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(Set.of(TEST_ITEM_ID));
     }
 
     @Test
@@ -97,7 +155,7 @@ public class ItemServiceImplTest {
         when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
         when(itemRepository.save(any(Item.class))).thenReturn(testItem);
 
-        ItemDto result = itemService.updateItem(TEST_ITEM_ID, updatedItemDto);
+        ItemDto result = itemService.updateItem(TEST_ITEM_ID, updatedItemDto, null);
 
         assertNotNull(result);
         assertEquals(result.getName(), updatedItemDto.getName());
@@ -105,6 +163,33 @@ public class ItemServiceImplTest {
 
         verify(itemRepository, times(1)).findById(TEST_ITEM_ID);
         verify(itemRepository, times(1)).save(any(Item.class));
+        verify(itemResponseCache, times(1)).invalidateAllAfterCommit();
+    }
+
+    @Test
+    void updateItem_whenItemCached_thenCachedItemIsReloaded() {
+        ItemDto updatedItemDto = new ItemDto(TEST_ITEM_ID, "updated_item", BigDecimal.valueOf(101), 1L);
+        when(itemRepository.findItemDtosByIdIn(Set.of(TEST_ITEM_ID)))
+                .thenReturn(List.of(testItemDto))
+                .thenReturn(List.of(updatedItemDto));
+        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
+        itemService.getItemById(TEST_ITEM_ID);
+
+        itemService.updateItem(TEST_ITEM_ID, updatedItemDto, null);
+
+        assertEquals(updatedItemDto, itemService.getItemById(TEST_ITEM_ID));
+        verify(itemRepository, times(2)).findItemDtosByIdIn(Set.of(TEST_ITEM_ID));
+    }
+
+    @Test
+    void updateItem_whenVersionDiffers_thenThrowsAndDoesNotSave() {
+        testItem.setVersion(3L);
+        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
+
+        assertThrows(VersionMismatchException.class, () -> itemService.updateItem(TEST_ITEM_ID, testItemDto, 2L));
+
+        verify(itemRepository, never()).save(any(Item.class));
+        verify(itemResponseCache, never()).invalidateAllAfterCommit();
     }
 
     @Test
@@ -115,10 +200,11 @@ public class ItemServiceImplTest {
 
         when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.empty());
 
-        assertThrows(ItemNotFoundException.class, () -> itemService.updateItem(TEST_ITEM_ID, updatedItemDto));
+        assertThrows(ItemNotFoundException.class, () -> itemService.updateItem(TEST_ITEM_ID, updatedItemDto, null));
 
         verify(itemRepository, times(1)).findById(TEST_ITEM_ID);
         verify(itemRepository, never()).save(any(Item.class));
+        verify(itemResponseCache, never()).invalidateAllAfterCommit();
     }
 
     @Test
@@ -132,6 +218,35 @@ public class ItemServiceImplTest {
 
         verify(itemRepository, times(1)).findById(TEST_ITEM_ID);
         verify(itemRepository, times(1)).deleteById(TEST_ITEM_ID);
+        verify(itemResponseCache, times(1)).invalidateAllAfterCommit();
+    }
+
+    @Test
+    void deleteItem_whenItemCached_thenItIsNoLongerServed() {
+        when(itemRepository.findItemDtosByIdIn(Set.of(TEST_ITEM_ID)))
+                .thenReturn(List.of(testItemDto))
+                .thenReturn(List.of());
+        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
+        itemService.getItemById(TEST_ITEM_ID);
+
+        itemService.deleteItem(TEST_ITEM_ID);
+
+        assertThrows(ItemNotFoundException.class, () -> itemService.getItemById(TEST_ITEM_ID));
+    }
+
+    @Test
+    void deleteItem_whenItemIsOrdered_thenItsOrdersAreInvalidatedOnAllInstances() {
+        testItem.getOrderItems().add(orderItem(11L, 21L));
+        testItem.getOrderItems().add(orderItem(12L, 21L));
+        when(itemRepository.findById(TEST_ITEM_ID)).thenReturn(Optional.of(testItem));
+
+        itemService.deleteItem(TEST_ITEM_ID);
+
+        verify(orderRepository, times(1)).orderItemsChanged(List.of(21L));
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(21L));
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(
+                eq(CacheInvalidation.Type.ORDER_ITEMS),
+                argThat(ids -> Set.copyOf(ids).equals(Set.of(11L, 12L))));
     }
 
     @Test
@@ -147,26 +262,28 @@ public class ItemServiceImplTest {
     @Test
     void getItemsIdIn_whenIdsExists_thenReturnsItemDtos() {
         Set<Long> ids = Set.of(TEST_ITEM_ID);
-        when(itemRepository.findAllByIdIn(ids)).thenReturn(List.of(testItem));
+        when(itemRepository.findItemDtosByIdIn(ids)).thenReturn(List.of(testItemDto));
 
         List<ItemDto> results = itemService.getItemsIdIn(ids);
 
         assertFalse(results.isEmpty());
         assertEquals(testItemDto, results.get(0));
 
-        verify(itemRepository, times(1)).findAllByIdIn(ids);
+        verify(itemRepository, times(1)).findItemDtosByIdIn(ids);
+        verify(itemRepository, never()).findAllByIdIn(any());
     }
 
     @Test
     void getAllItems_thenReturnsAllItemDto() {
-        when(itemRepository.findAll()).thenReturn(List.of(testItem));
+        when(itemRepository.findAllItemDtos()).thenReturn(List.of(testItemDto));
 
         List<ItemDto> results = itemService.getAllItems();
 
         assertFalse(results.isEmpty());
         assertEquals(testItemDto, results.get(0));
 
-        verify(itemRepository, times(1)).findAll();
+        verify(itemRepository, times(1)).findAllItemDtos();
+        verify(itemRepository, never()).findAll();
     }
 
     @Test
@@ -182,5 +299,39 @@ public class ItemServiceImplTest {
 
         verify(itemRepository, times(1)).findAllItemsNative(pageable);
     }
-    
+
+    @Test
+    void getAllItemsWithCursor_whenMoreRowsExist_thenReturnsNextCursor() {
+        Item secondItem = ItemGenerator.generateItem();
+        secondItem.setId(2L);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(testItem, secondItem));
+
+        CursorPageDto<ItemDto> page = itemService.getAllItemsWithCursor(null, 1);
+
+        assertEquals(List.of(testItemDto), page.getContent());
+        assertEquals(CursorUtil.encode(TEST_ITEM_ID), page.getNextCursor());
+    }
+
+    @Test
+    void getAllItemsWithCursor_whenLastPage_thenNextCursorIsNull() {
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(TEST_ITEM_ID - 1, Limit.of(11))).thenReturn(List.of(testItem));
+
+        CursorPageDto<ItemDto> page = itemService.getAllItemsWithCursor(CursorUtil.encode(TEST_ITEM_ID - 1), 10);
+
+        assertEquals(List.of(testItemDto), page.getContent());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getAllItemsWithCursor_whenCursorInvalid_thenThrowsException() {
+        assertThrows(InvalidCursorException.class, () -> itemService.getAllItemsWithCursor("not-a-cursor", 10));
+        verify(itemRepository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    private static OrderItem orderItem(Long orderItemId, Long orderId) {
+        OrderItem orderItem = OrderItemGenerator.generateOrderItem();
+        orderItem.setId(orderItemId);
+        orderItem.setOrder(Order.builder().id(orderId).build());
+        return orderItem;
+    }
 }
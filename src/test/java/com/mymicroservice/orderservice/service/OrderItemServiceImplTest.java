@@ -1,9 +1,11 @@
 package com.mymicroservice.orderservice.service;
 
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
 import com.mymicroservice.orderservice.dto.OrderItemDto;
 import com.mymicroservice.orderservice.exception.ItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
 import com.mymicroservice.orderservice.mapper.OrderItemMapper;
 import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
@@ -56,6 +58,9 @@ public class OrderItemServiceImplTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
     private final static Long TEST_ORDER_ITEM_ID = 1L;
     private OrderItem testOrderItem;
     private OrderItemDto testOrderItemDto;
@@ -130,6 +135,8 @@ public class OrderItemServiceImplTest {
         verify(orderRepository, times(1)).findById(TEST_ORDER_ITEM_ID);
         verify(itemRepository, times(1)).findById(TEST_ORDER_ITEM_ID);
         verify(orderItemRepository, times(1)).save(any(OrderItem.class));
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, List.of(TEST_ORDER_ITEM_ID));
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(1L));
     }
 
     @Test
@@ -197,6 +204,7 @@ public class OrderItemServiceImplTest {
 
         verify(orderItemRepository, times(1)).findById(TEST_ORDER_ITEM_ID);
         verify(orderItemRepository, times(1)).deleteById(TEST_ORDER_ITEM_ID);
+        verify(cacheInvalidationPublisher, times(1)).publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, List.of(TEST_ORDER_ITEM_ID));
     }
 
     @Test
@@ -212,26 +220,26 @@ public class OrderItemServiceImplTest {
     @Test
     void getOrderItemsIdIn_whenIdsExists_thenReturnsOrderItemDtos() {
         Set<Long> ids = Set.of(TEST_ORDER_ITEM_ID);
-        when(orderItemRepository.findAllByIdIn(ids)).thenReturn(List.of(testOrderItem));
+        when(orderItemRepository.findOrderItemDtosByIdIn(ids)).thenReturn(List.of(testOrderItemDto));
 
         List<OrderItemDto> results = orderItemService.getOrderItemsIdIn(ids);
 
         assertFalse(results.isEmpty());
         assertEquals(testOrderItemDto, results.get(0));
 
-        verify(orderItemRepository, times(1)).findAllByIdIn(ids);
+        verify(orderItemRepository, times(1)).findOrderItemDtosByIdIn(ids);
     }
 
     @Test
     void getAllOrderItems_thenReturnsAllOrderItemDto() {
-        when(orderItemRepository.findAll()).thenReturn(List.of(testOrderItem));
+        when(orderItemRepository.findAllOrderItemDtos()).thenReturn(List.of(testOrderItemDto));
 
         List<OrderItemDto> results = orderItemService.getAllOrderItems();
 
         assertFalse(results.isEmpty());
         assertEquals(testOrderItemDto, results.get(0));
 
-        verify(orderItemRepository, times(1)).findAll();
+        verify(orderItemRepository, times(1)).findAllOrderItemDtos();
     }
 
     @Test
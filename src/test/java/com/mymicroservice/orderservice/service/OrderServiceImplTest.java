@@ -1,46 +1,86 @@
 package com.mymicroservice.orderservice.service;
 
-import com.mymicroservice.orderservice.client.UserClient;
+import com.mymicroservice.orderservice.dto.CacheInvalidation;
+import com.mymicroservice.orderservice.dto.CursorPageDto;
+import com.mymicroservice.orderservice.dto.ItemDto;
 import com.mymicroservice.orderservice.dto.OrderDto;
+import com.mymicroservice.orderservice.dto.OrderItemDto;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.exception.InvalidStatusTransitionException;
+import com.mymicroservice.orderservice.exception.ItemNotFoundException;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
-import com.mymicroservice.orderservice.kafka.OrderEventProducer;
+import com.mymicroservice.orderservice.exception.VersionMismatchException;
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import com.mymicroservice.orderservice.kafka.CacheInvalidationPublisher;
+import com.mymicroservice.orderservice.kafka.OrderStatusChangePublisher;
+import com.mymicroservice.orderservice.mapper.ItemMapper;
 import com.mymicroservice.orderservice.mapper.OrderMapper;
 import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
 import com.mymicroservice.orderservice.model.OrderItem;
 import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.repository.OrderItemRepository;
 import com.mymicroservice.orderservice.repository.OrderRepository;
-import com.mymicroservice.orderservice.repository.ItemRepository;
 import com.mymicroservice.orderservice.service.impl.OrderServiceImpl;
 import com.mymicroservice.orderservice.util.OrderGenerator;
+import com.mymicroservice.orderservice.util.ScopedTaskFactory;
+import com.mymicroservice.orderservice.util.UserEnrichment;
 import com.mymicroservice.orderservice.util.UserGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.mymicroservices.common.events.OrderEventDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doAnswer;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -50,20 +90,45 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 public class OrderServiceImplTest {
 
-    @InjectMocks
     private OrderServiceImpl orderService;
 
     @Mock
     private OrderRepository orderRepository;
 
     @Mock
-    private ItemRepository itemRepository;
+    private OrderItemRepository orderItemRepository;
 
     @Mock
-    private OrderEventProducer orderEventProducer;
+    private ItemCatalogCache itemCatalogCache;
 
     @Mock
-    private UserClient userClient;
+    private OutboxService outboxService;
+
+    @Mock
+    private OrderStatusChangePublisher orderStatusChangePublisher;
+
+    @Mock
+    private CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    @Mock
+    private UserLookupService userLookupService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    /** Set while a callback of {@link #readOnlyTransactionTemplate} runs. */
+    private volatile boolean inReadOnlyTransaction;
+    private final CountDownLatch readOnlyTransactionEnded = new CountDownLatch(1);
+
+    // subtasks run inline on fork, so the order of calls is deterministic
+    @Spy
+    private ScopedTaskFactory scopedTaskFactory = new ScopedTaskFactory(new TaskExecutorAdapter(Runnable::run), Duration.ofSeconds(5));
 
     private final static Long TEST_ORDER_ID = 1L;
     private Order testOrder;
@@ -73,6 +138,24 @@ public class OrderServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // two templates of one type, which @InjectMocks can't tell apart
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, itemCatalogCache, userLookupService,
+                outboxService, entityManager, transactionTemplate, readOnlyTransactionTemplate, scopedTaskFactory,
+                orderStatusChangePublisher, cacheInvalidationPublisher);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(readOnlyTransactionTemplate.execute(any())).thenAnswer(invocation -> {
+            inReadOnlyTransaction = true;
+            try {
+                return invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+            } finally {
+                inReadOnlyTransaction = false;
+                readOnlyTransactionEnded.countDown();
+            }
+        });
+        lenient().when(entityManager.getReference(eq(Item.class), anyLong())).thenAnswer(invocation ->
+                Item.builder().id(invocation.getArgument(1)).build());
+
         testOrder = OrderGenerator.generateOrder();
         testOrder.setId(TEST_ORDER_ID);
 
@@ -97,16 +180,9 @@ public class OrderServiceImplTest {
 
     @Test
     void createNewOrder_ReturnsOrderWithUserResponse() {
-        when(itemRepository.findById(2L)).thenReturn(Optional.of(testOrder.getOrderItems().iterator().next().getItem()));
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
         when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder)); // <--- важно!
-        when(userClient.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
-
-        doAnswer(invocation -> {
-            Runnable callback = invocation.getArgument(1);
-            callback.run();
-            return null;
-        }).when(orderEventProducer).sendCreateOrder(any(), any());
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
 
         OrderWithUserResponse result = orderService.createOrder(testOrderDto);
 
@@ -114,39 +190,186 @@ public class OrderServiceImplTest {
         assertEquals(testOrderWithUserResponse.getOrder(), result.getOrder());
         assertEquals(testOrderWithUserResponse.getUser(), result.getUser());
 
-        verify(itemRepository, times(1)).findById(2L);
-        verify(orderRepository, times(2)).save(any(Order.class));
-        verify(userClient, times(1)).getUserById(TEST_ORDER_ID);
-        verify(orderEventProducer, times(1)).sendCreateOrder(any(), any());
+        verify(itemCatalogCache, times(1)).getAll(Set.of(2L));
+        // order items link to the item by reference, the item itself isn't loaded
+        verify(entityManager, times(1)).getReference(Item.class, 2L);
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(userLookupService, times(1)).getUserById(TEST_ORDER_ID);
+        verify(outboxService, times(1)).enqueueCreateOrder(any());
     }
 
     @Test
-    void updateOrderStatus_whenOrderExists_thenUpdatesStatus() {
-        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+    void createOrder_whenItemsMissing_thenReportsAllMissingIds() {
+        OrderDto orderDto = OrderDto.builder()
+                .userId(testOrderDto.getUserId())
+                .orderItems(Set.of(new OrderItemDto(null, null, 2L, 1L),
+                        new OrderItemDto(null, null, 7L, 1L),
+                        new OrderItemDto(null, null, 5L, 1L)))
+                .build();
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        when(itemCatalogCache.getAll(Set.of(2L, 5L, 7L)))
+                .thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
+
+        ItemNotFoundException exception = assertThrows(ItemNotFoundException.class,
+                () -> orderService.createOrder(orderDto));
+
+        assertEquals("Items not found: [5, 7]", exception.getMessage());
+        verify(itemCatalogCache, times(1)).getAll(Set.of(2L, 5L, 7L));
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(outboxService);
+    }
 
-        orderService.updateOrderStatus(TEST_ORDER_ID, OrderStatus.PROCESSING);
+    @Test
+    void createOrder_thenPaymentAmountUsesResolvedItems() {
+        Item secondItem = Item.builder().id(3L).price(BigDecimal.valueOf(20)).build();
+        OrderDto orderDto = OrderDto.builder()
+                .userId(testOrderDto.getUserId())
+                .orderItems(Set.of(new OrderItemDto(null, null, 2L, 5L), new OrderItemDto(null, null, 3L, 2L)))
+                .build();
+        when(itemCatalogCache.getAll(Set.of(2L, 3L)))
+                .thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem(), secondItem));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order saved = invocation.getArgument(0);
+            saved.setId(TEST_ORDER_ID);
+            return saved;
+        });
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+
+        orderService.createOrder(orderDto);
+
+        ArgumentCaptor<OrderEventDto> event = ArgumentCaptor.forClass(OrderEventDto.class);
+        verify(outboxService).enqueueCreateOrder(event.capture());
+        // 5 * 100 + 2 * 20
+        assertEquals(0, BigDecimal.valueOf(540).compareTo(event.getValue().getPaymentAmount()));
+        verify(itemCatalogCache, times(1)).getAll(Set.of(2L, 3L));
+    }
 
-        assertEquals(OrderStatus.PROCESSING, testOrder.getStatus());
+    @Test
+    void createOrder_thenResolvesUserAndItemsBeforeTransactionAndWritesEventInIt() {
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+
+        orderService.createOrder(testOrderDto);
+
+        // the lookup overlaps with item resolution, both before the transaction
+        var inOrder = inOrder(userLookupService, itemCatalogCache, transactionTemplate, orderRepository, entityManager, outboxService);
+        inOrder.verify(userLookupService).getUserById(testOrderDto.getUserId());
+        inOrder.verify(itemCatalogCache).getAll(Set.of(2L));
+        inOrder.verify(transactionTemplate).execute(any());
+        // the event is stored by the same transaction as the order, nothing is sent to Kafka here
+        inOrder.verify(orderRepository).save(any(Order.class));
+        inOrder.verify(entityManager).flush();
+        inOrder.verify(outboxService).enqueueCreateOrder(any());
+    }
+
+    @Test
+    void createOrder_whenCachedItemDeletedMeanwhile_thenItemNotFound() {
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        doThrow(constraintViolation("fk_orderitem_item")).when(entityManager).flush();
 
-        verify(orderRepository).findById(TEST_ORDER_ID);
-        verify(orderRepository).save(testOrder);
+        ItemNotFoundException exception = assertThrows(ItemNotFoundException.class,
+                () -> orderService.createOrder(testOrderDto));
+
+        assertEquals("Item not found, deleted meanwhile: one of [2]", exception.getMessage());
+        verifyNoInteractions(outboxService);
     }
 
     @Test
-    void updateOrderStatus_whenOrderNotFound_thenThrowsException() {
-        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.empty());
+    void createOrder_whenOtherConstraintViolated_thenRethrown() {
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        PersistenceException violation = constraintViolation("fk_order_item");
+        doThrow(violation).when(entityManager).flush();
 
-        assertThrows(OrderNotFoundException.class,
-                () -> orderService.updateOrderStatus(TEST_ORDER_ID, OrderStatus.PROCESSING));
+        PersistenceException exception = assertThrows(PersistenceException.class,
+                () -> orderService.createOrder(testOrderDto));
 
-        verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
+        assertEquals(violation, exception);
+    }
+
+    @Test
+    void createOrder_whenUserLookupFails_thenNoTransactionIsOpened() {
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenThrow(new IllegalStateException("user not found"));
+
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(testOrderDto));
+
+        verify(transactionTemplate, never()).execute(any());
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void updateOrderStatus_whenTransitionAllowed_thenSingleConditionalUpdate() {
+        OrderStatusChange change = new OrderStatusChange(TEST_ORDER_ID, 2L, OrderStatus.PAID, 3L);
+        when(orderRepository.transitionStatus(TEST_ORDER_ID, OrderStatus.PAID,
+                Set.of(OrderStatus.CREATED, OrderStatus.PROCESSING, OrderStatus.FAILED))).thenReturn(Optional.of(change));
+
+        assertTrue(orderService.updateOrderStatus(TEST_ORDER_ID, OrderStatus.PAID));
+
+        verify(orderStatusChangePublisher).publishAfterCommit(List.of(change));
+        verify(orderRepository, never()).findById(anyLong());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void updateOrderStatus_whenOrderMissingOrAlreadyPaid_thenNotApplied() {
+        // a late PROCESSING must not overwrite PAID: PAID is not among the allowed source statuses
+        when(orderRepository.transitionStatus(TEST_ORDER_ID, OrderStatus.PROCESSING,
+                Set.of(OrderStatus.CREATED, OrderStatus.FAILED))).thenReturn(Optional.empty());
+
+        assertFalse(orderService.updateOrderStatus(TEST_ORDER_ID, OrderStatus.PROCESSING));
+
+        verifyNoInteractions(orderStatusChangePublisher);
         verify(orderRepository, never()).save(any(Order.class));
     }
 
+    @Test
+    void updateOrderStatus_whenTargetNotReachable_thenNoUpdate() {
+        assertFalse(orderService.updateOrderStatus(TEST_ORDER_ID, OrderStatus.CREATED));
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void updateOrderStatuses_thenOneConditionalUpdatePerStatusWithoutLoadingOrders() {
+        List<OrderStatusChange> paid = List.of(new OrderStatusChange(1L, 2L, OrderStatus.PAID, 1L),
+                new OrderStatusChange(3L, 2L, OrderStatus.PAID, 4L));
+        List<OrderStatusChange> failed = List.of(new OrderStatusChange(2L, 5L, OrderStatus.FAILED, 2L));
+        when(orderRepository.transitionStatusByIdIn(List.of(1L, 3L), OrderStatus.PAID, OrderStatus.PAID.allowedFrom())).thenReturn(paid);
+        when(orderRepository.transitionStatusByIdIn(List.of(2L), OrderStatus.FAILED, OrderStatus.FAILED.allowedFrom())).thenReturn(failed);
+        Map<Long, OrderStatus> statuses = new LinkedHashMap<>();
+        statuses.put(1L, OrderStatus.PAID);
+        statuses.put(2L, OrderStatus.FAILED);
+        statuses.put(3L, OrderStatus.PAID);
+
+        assertEquals(3, orderService.updateOrderStatuses(statuses));
+
+        ArgumentCaptor<List<OrderStatusChange>> published = ArgumentCaptor.forClass(List.class);
+        verify(orderStatusChangePublisher).publishAfterCommit(published.capture());
+        assertThat(published.getValue()).containsExactlyInAnyOrderElementsOf(Stream.concat(paid.stream(), failed.stream()).toList());
+
+        verify(orderRepository, never()).findById(anyLong());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void orderStatus_transitionTable() {
+        assertTrue(OrderStatus.PROCESSING.canTransitionFrom(OrderStatus.CREATED));
+        assertFalse(OrderStatus.PROCESSING.canTransitionFrom(OrderStatus.PAID));
+        assertTrue(OrderStatus.PAID.canTransitionFrom(OrderStatus.CREATED));
+        assertFalse(OrderStatus.FAILED.canTransitionFrom(OrderStatus.PAID));
+        assertFalse(OrderStatus.CANCELLED.canTransitionFrom(OrderStatus.PAID));
+    }
+
     @Test
     void getOrderById_whenIdExists_thenReturnsOrderWithUserResponse() {
         when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
-        when(userClient.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        when(userLookupService.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
 
         OrderWithUserResponse result = orderService.getOrderById(TEST_ORDER_ID);
 
@@ -155,7 +378,45 @@ public class OrderServiceImplTest {
         assertEquals(testUserDto, result.getUser());
 
         verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
-        verify(userClient, times(1)).getUserById(testOrderDto.getUserId());
+        verify(userLookupService, times(1)).getUserById(testOrderDto.getUserId());
+    }
+
+    @Test
+    void getOrderById_whenUserServiceUnavailable_thenReturnsOrderWithoutUserAndMarksResponse() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        try {
+            when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+            when(userLookupService.getUserById(testOrderDto.getUserId()))
+                    .thenThrow(new UserServiceUnavailableException("Circuit breaker of userservice is open", null));
+
+            OrderWithUserResponse result = orderService.getOrderById(TEST_ORDER_ID);
+
+            assertEquals(testOrderDto, result.getOrder());
+            assertNull(result.getUser());
+            assertEquals(UserEnrichment.SKIPPED, response.getHeader(UserEnrichment.HEADER));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void getAllOrders_whenUserNotResolved_thenReturnsOrderWithoutUserAndMarksResponse() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        try {
+            when(orderRepository.findAllOrderDtos()).thenReturn(List.of(orderProjection()));
+            when(orderItemRepository.findAllOrderItemDtos()).thenReturn(List.of(orderItemProjection()));
+            when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId()))).thenReturn(Map.of());
+
+            List<OrderWithUserResponse> results = orderService.getAllOrders();
+
+            assertEquals(1, results.size());
+            assertNull(results.get(0).getUser());
+            assertEquals(UserEnrichment.SKIPPED, response.getHeader(UserEnrichment.HEADER));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
     }
 
     @Test
@@ -165,7 +426,7 @@ public class OrderServiceImplTest {
         assertThrows(OrderNotFoundException.class, () -> orderService.getOrderById(TEST_ORDER_ID));
 
         verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
-        verifyNoInteractions(userClient);
+        verifyNoInteractions(userLookupService);
     }
 
     @Test
@@ -180,39 +441,68 @@ public class OrderServiceImplTest {
         updatedOrder.setOrderItems(testOrder.getOrderItems()); //Saving the order items to create an event
 
         when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+        when(itemCatalogCache.getAll(Set.of(2L))).thenReturn(itemDtos(testOrder.getOrderItems().iterator().next().getItem()));
         when(orderRepository.save(any(Order.class))).thenReturn(updatedOrder);
-        when(userClient.getUserById(updatedOrderDto.getUserId())).thenReturn(testUserDto);
-
-        // Mock for orderEventProducer
-        doAnswer(invocation -> {
-            Runnable callback = invocation.getArgument(1);
-            callback.run(); // Performing a callback to update the status
-            return null;
-        }).when(orderEventProducer).sendCreateOrder(any(), any());
+        when(userLookupService.getUserById(updatedOrderDto.getUserId())).thenReturn(testUserDto);
 
-        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(updatedOrder));
-
-        OrderWithUserResponse result = orderService.updateOrder(TEST_ORDER_ID, updatedOrderDto);
+        OrderWithUserResponse result = orderService.updateOrder(TEST_ORDER_ID, updatedOrderDto, null);
 
         assertNotNull(result);
         assertEquals(updatedOrderDto.getStatus(), result.getOrder().getStatus());
 
-        verify(orderRepository, times(2)).findById(TEST_ORDER_ID); // Один раз в updateOrder, один раз в callback
-        verify(orderRepository, times(2)).save(any(Order.class));
-        verify(userClient, times(1)).getUserById(updatedOrderDto.getUserId());
-        verify(orderEventProducer, times(1)).sendCreateOrder(any(), any());
+        verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(userLookupService, times(1)).getUserById(updatedOrderDto.getUserId());
+        verify(outboxService, times(1)).enqueueCreateOrder(any());
+        verify(orderStatusChangePublisher).publishAfterCommit(List.of(new OrderStatusChange(TEST_ORDER_ID,
+                updatedOrderDto.getUserId(), OrderStatus.CANCELLED, updatedOrder.getVersion())));
+        verify(cacheInvalidationPublisher).publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(TEST_ORDER_ID));
+    }
+
+    @Test
+    void updateOrder_whenStatusNotReachableFromCurrent_thenThrowsAndDoesNotSave() {
+        testOrder.setStatus(OrderStatus.CANCELLED);
+        OrderDto orderDetails = OrderMapper.INSTANCE.toDto(testOrder);
+        orderDetails.setStatus(OrderStatus.PROCESSING);
+        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+
+        assertThrows(InvalidStatusTransitionException.class, () -> orderService.updateOrder(TEST_ORDER_ID, orderDetails, null));
+
+        assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(outboxService, orderStatusChangePublisher);
+    }
+
+    @Test
+    void updateOrder_whenVersionDiffers_thenThrowsAndDoesNotSave() {
+        testOrder.setVersion(3L);
+        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+
+        assertThrows(VersionMismatchException.class, () -> orderService.updateOrder(TEST_ORDER_ID, testOrderDto, 2L));
+
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void getOrderVersion_thenReadsOnlyTheVersion() {
+        when(orderRepository.findVersionById(TEST_ORDER_ID)).thenReturn(Optional.of(3L));
+
+        assertEquals(Optional.of(3L), orderService.getOrderVersion(TEST_ORDER_ID));
+
+        verify(orderRepository, never()).findById(any());
+        verifyNoInteractions(userLookupService);
     }
 
     @Test
     void updateOrder_whenIdNotExist_thenThrowsException() {
         when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.empty());
 
-        assertThrows(OrderNotFoundException.class, () -> orderService.updateOrder(TEST_ORDER_ID, testOrderDto));
+        assertThrows(OrderNotFoundException.class, () -> orderService.updateOrder(TEST_ORDER_ID, testOrderDto, null));
 
         verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
         verify(orderRepository, never()).save(any(Order.class));
-        verifyNoInteractions(userClient);
-        verifyNoInteractions(orderEventProducer); // checking that the event is not being sent
+        verifyNoInteractions(outboxService); // checking that the event is not being sent
     }
 
     @Test
@@ -226,6 +516,8 @@ public class OrderServiceImplTest {
 
         verify(orderRepository, times(1)).findById(TEST_ORDER_ID);
         verify(orderRepository, times(1)).deleteById(TEST_ORDER_ID);
+        verify(cacheInvalidationPublisher).publishAfterCommit(CacheInvalidation.Type.ORDERS, List.of(TEST_ORDER_ID));
+        verify(cacheInvalidationPublisher).publishAfterCommit(CacheInvalidation.Type.ORDER_ITEMS, List.of(1L));
     }
 
     @Test
@@ -240,61 +532,169 @@ public class OrderServiceImplTest {
 
     @Test
     void getOrdersByUserEmail_whenEmailExists_thenReturnsOrdersWithUser() {
-        when(userClient.getUserByEmail(anyString())).thenReturn(testUserDto);
-        when(orderRepository.findOrdersByUserId(testUserDto.getUserId()))
-                .thenReturn(List.of(testOrder));
+        when(userLookupService.getUserByEmail(anyString())).thenReturn(testUserDto);
+        when(orderRepository.findOrderDtosByUserId(testUserDto.getUserId()))
+                .thenReturn(List.of(orderProjection()));
+        when(orderRepository.findOrderItemDtosByOrderUserId(testUserDto.getUserId()))
+                .thenReturn(List.of(orderItemProjection()));
 
         List<OrderWithUserResponse> results = orderService.getOrdersByUserEmail("test@example.com");
 
         assertFalse(results.isEmpty());
         assertEquals(testUserDto, results.get(0).getUser());
 
-        verify(userClient, times(1)).getUserByEmail(anyString());
-        verify(orderRepository, times(1)).findOrdersByUserId(testUserDto.getUserId());
+        verify(userLookupService, times(1)).getUserByEmail(anyString());
+        assertEquals(Set.of(orderItemProjection()), results.get(0).getOrder().getOrderItems());
+        verify(orderRepository, times(1)).findOrderDtosByUserId(testUserDto.getUserId());
+        verify(orderRepository, never()).findOrdersByUserId(anyLong());
     }
 
     @Test
     void getOrdersIdIn_whenIdsExists_thenReturnsOrdersWithUsers() {
         Set<Long> ids = Set.of(TEST_ORDER_ID);
-        when(orderRepository.findAllByIdIn(ids)).thenReturn(List.of(testOrder));
-        when(userClient.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        when(orderRepository.multiLoadByIdIn(ids)).thenReturn(List.of(testOrder));
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId())))
+                .thenReturn(Map.of(testUserDto.getUserId(), testUserDto));
 
         List<OrderWithUserResponse> results = orderService.getOrdersIdIn(ids);
 
         assertFalse(results.isEmpty());
         assertEquals(testUserDto, results.get(0).getUser());
 
-        verify(orderRepository, times(1)).findAllByIdIn(ids);
-        verify(userClient, times(1)).getUserById(testOrderDto.getUserId());
+        assertEquals(testOrderDto.getOrderItems(), results.get(0).getOrder().getOrderItems());
+        verify(orderRepository, times(1)).multiLoadByIdIn(ids);
+        verify(userLookupService, times(1)).getUsersByIds(Set.of(testOrderDto.getUserId()));
+    }
+
+    @Test
+    void getOrdersIdIn_thenUsersAreLookedUpAfterTheReadOnlyTransaction() {
+        Set<Long> ids = Set.of(TEST_ORDER_ID);
+        when(orderRepository.multiLoadByIdIn(ids)).thenAnswer(invocation -> {
+            assertTrue(inReadOnlyTransaction);
+            return List.of(testOrder);
+        });
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId()))).thenAnswer(invocation -> {
+            assertFalse(inReadOnlyTransaction); // no connection is held while userservice is called
+            return Map.of(testUserDto.getUserId(), testUserDto);
+        });
+
+        assertEquals(testUserDto, orderService.getOrdersIdIn(ids).get(0).getUser());
+
+        verify(readOnlyTransactionTemplate, times(1)).execute(any());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void getOrdersByUserEmail_thenUserIsResolvedBeforeTheReadOnlyTransaction() {
+        when(userLookupService.getUserByEmail("test@example.com")).thenAnswer(invocation -> {
+            assertFalse(inReadOnlyTransaction);
+            return testUserDto;
+        });
+        when(orderRepository.findOrderDtosByUserId(testUserDto.getUserId())).thenAnswer(invocation -> {
+            assertTrue(inReadOnlyTransaction);
+            return List.of(orderProjection());
+        });
+
+        orderService.getOrdersByUserEmail("test@example.com");
+
+        var inOrder = inOrder(userLookupService, readOnlyTransactionTemplate);
+        inOrder.verify(userLookupService).getUserByEmail("test@example.com");
+        inOrder.verify(readOnlyTransactionTemplate).execute(any());
+    }
+
+    @Test
+    void findByStatusInWithCursor_thenUsersAreLookedUpAfterTheReadOnlyTransaction() {
+        Set<OrderStatus> statuses = Set.of(OrderStatus.CREATED);
+        when(orderRepository.findByStatusInAndIdGreaterThanOrderByIdAsc(eq(statuses), eq(0L), any()))
+                .thenAnswer(invocation -> {
+                    assertTrue(inReadOnlyTransaction);
+                    return List.of(testOrder);
+                });
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId()))).thenAnswer(invocation -> {
+            assertFalse(inReadOnlyTransaction);
+            return Map.of(testUserDto.getUserId(), testUserDto);
+        });
+
+        CursorPageDto<OrderWithUserResponse> page = orderService.findByStatusInWithCursor(statuses, null, 10);
+
+        assertEquals(testUserDto, page.getContent().get(0).getUser());
+        assertNull(page.getNextCursor());
     }
 
     @Test
     void findByStatusIn_whenStatusesExists_thenReturnsOrdersWithUsers() {
         Set<OrderStatus> statuses = Set.of(OrderStatus.CREATED);
-        when(orderRepository.findByStatusIn(statuses)).thenReturn(List.of(testOrder));
-        when(userClient.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        when(orderRepository.findOrderDtosByStatusIn(statuses)).thenReturn(List.of(orderProjection()));
+        when(orderRepository.findOrderItemDtosByOrderStatusIn(statuses)).thenReturn(List.of(orderItemProjection()));
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId())))
+                .thenReturn(Map.of(testUserDto.getUserId(), testUserDto));
 
         List<OrderWithUserResponse> results = orderService.findByStatusIn(statuses);
 
         assertFalse(results.isEmpty());
         assertEquals(testUserDto, results.get(0).getUser());
 
-        verify(orderRepository, times(1)).findByStatusIn(statuses);
-        verify(userClient, times(1)).getUserById(testOrderDto.getUserId());
+        verify(orderRepository, times(1)).findOrderDtosByStatusIn(statuses);
+        verify(userLookupService, times(1)).getUsersByIds(Set.of(testOrderDto.getUserId()));
+    }
+
+    @Test
+    void findByStatusIn_thenForkedUserLookupIsJoinedAfterTheReadOnlyTransaction() {
+        // subtasks run on their own threads: a lookup joined inside the transaction would never see it end
+        ScopedTaskFactory concurrentTaskFactory = new ScopedTaskFactory(
+                new TaskExecutorAdapter(task -> new Thread(task).start()), Duration.ofSeconds(5));
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, itemCatalogCache, userLookupService,
+                outboxService, entityManager, transactionTemplate, readOnlyTransactionTemplate, concurrentTaskFactory,
+                orderStatusChangePublisher, cacheInvalidationPublisher);
+        Set<OrderStatus> statuses = Set.of(OrderStatus.CREATED);
+        when(orderRepository.findOrderDtosByStatusIn(statuses)).thenReturn(List.of(orderProjection()));
+        when(orderRepository.findOrderItemDtosByOrderStatusIn(statuses)).thenAnswer(invocation -> {
+            assertTrue(inReadOnlyTransaction);
+            return List.of(orderItemProjection());
+        });
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId()))).thenAnswer(invocation -> {
+            assertTrue(readOnlyTransactionEnded.await(5, TimeUnit.SECONDS));
+            return Map.of(testUserDto.getUserId(), testUserDto);
+        });
+
+        List<OrderWithUserResponse> results = orderService.findByStatusIn(statuses);
+
+        assertEquals(testUserDto, results.get(0).getUser());
+        assertEquals(Set.of(orderItemProjection()), results.get(0).getOrder().getOrderItems());
+        verify(readOnlyTransactionTemplate, times(1)).execute(any());
     }
 
     @Test
     void getAllOrders_thenReturnsAllOrdersWithUsers() {
-        when(orderRepository.findAll()).thenReturn(List.of(testOrder));
-        when(userClient.getUserById(testOrderDto.getUserId())).thenReturn(testUserDto);
+        when(orderRepository.findAllOrderDtos()).thenReturn(List.of(orderProjection()));
+        when(orderItemRepository.findAllOrderItemDtos()).thenReturn(List.of(orderItemProjection()));
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId())))
+                .thenReturn(Map.of(testUserDto.getUserId(), testUserDto));
 
         List<OrderWithUserResponse> results = orderService.getAllOrders();
 
         assertFalse(results.isEmpty());
         assertEquals(testUserDto, results.get(0).getUser());
 
-        verify(orderRepository, times(1)).findAll();
-        verify(userClient, times(1)).getUserById(testOrderDto.getUserId());
+        assertEquals(Set.of(orderItemProjection()), results.get(0).getOrder().getOrderItems());
+        verify(orderRepository, times(1)).findAllOrderDtos();
+        verify(orderRepository, never()).findAll();
+        verify(userLookupService, times(1)).getUsersByIds(Set.of(testOrderDto.getUserId()));
+    }
+
+    @Test
+    void exportAllOrders_thenStreamsOrdersWithUsersAndClearsContext() {
+        when(orderRepository.streamAllOrders()).thenReturn(Stream.of(testOrder));
+        when(userLookupService.getUsersByIds(Set.of(testOrderDto.getUserId())))
+                .thenReturn(Map.of(testUserDto.getUserId(), testUserDto));
+
+        List<OrderWithUserResponse> results = new ArrayList<>();
+        orderService.exportAllOrders(results::add);
+
+        assertEquals(1, results.size());
+        assertEquals(testUserDto, results.get(0).getUser());
+        verify(orderRepository, never()).findAll();
+        verify(entityManager, times(1)).clear();
     }
 
     @Test
@@ -311,4 +711,20 @@ public class OrderServiceImplTest {
         verify(orderRepository, times(1)).findAllOrdersNative(pageable);
     }
 
+    private OrderDto orderProjection() {
+        return new OrderDto(TEST_ORDER_ID, testOrder.getUserId(), testOrder.getStatus(), testOrder.getCreationDate(), testOrder.getVersion());
+    }
+
+    private OrderItemDto orderItemProjection() {
+        return new OrderItemDto(1L, TEST_ORDER_ID, 1L, 2L);
+    }
+
+    private static Map<Long, ItemDto> itemDtos(Item... items) {
+        return Arrays.stream(items).collect(Collectors.toMap(Item::getId, ItemMapper.INSTANCE::toDto));
+    }
+
+    private static PersistenceException constraintViolation(String constraintName) {
+        return new PersistenceException(new ConstraintViolationException("could not execute batch",
+                new SQLException("violates foreign key constraint"), constraintName));
+    }
 }
@@ -0,0 +1,208 @@
+package com.mymicroservice.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.dto.OrderStatusChange;
+import com.mymicroservice.orderservice.exception.TooManySubscribersException;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.service.impl.OrderStatusStreamServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderStatusStreamServiceImplTest {
+
+    private static final Duration AWAIT = Duration.ofSeconds(5);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OrderStatusStreamServiceImpl orderStatusStreamService;
+
+    @BeforeEach
+    void setUp() {
+        orderStatusStreamService = newService(2, Duration.ofSeconds(15));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (orderStatusStreamService.isRunning()) {
+            orderStatusStreamService.stop();
+        }
+    }
+
+    @Test
+    void subscribe_whenMaxSubscribersReached_thenRejected() {
+        orderStatusStreamService.subscribeToUser(1L);
+        orderStatusStreamService.subscribeToOrder(1L, () -> Optional.of(new OrderStatusChange(1L, 1L, OrderStatus.CREATED, 0L)));
+
+        assertThrows(TooManySubscribersException.class, () -> orderStatusStreamService.subscribeToUser(2L));
+        assertEquals(2, orderStatusStreamService.getSubscriberCount());
+        assertEquals(2.0, meterRegistry.get(OrderStatusStreamServiceImpl.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    void subscribeToOrder_whenOrderMissing_thenSubscriptionReleased() {
+        orderStatusStreamService.subscribeToUser(1L);
+
+        assertTrue(orderStatusStreamService.subscribeToOrder(1L, Optional::empty).isEmpty());
+
+        assertEquals(1, orderStatusStreamService.getSubscriberCount());
+        orderStatusStreamService.subscribeToUser(2L); // the released slot is available again
+    }
+
+    @Test
+    void subscribeToOrder_thenFirstEventCarriesCurrentStatus() {
+        OrderStatusChange current = new OrderStatusChange(1L, 1L, OrderStatus.PAID, 3L);
+
+        RecordingEmitter emitter = (RecordingEmitter) orderStatusStreamService
+                .subscribeToOrder(1L, () -> Optional.of(current)).orElseThrow();
+
+        await().atMost(AWAIT).until(() -> emitter.statuses().size() == 1);
+        assertEquals(current, emitter.statuses().get(0));
+    }
+
+    @Test
+    void dispatch_thenSentToSubscribersOfOrderAndOfItsUserOnly() {
+        orderStatusStreamService = newService(4, Duration.ofSeconds(15));
+        OrderStatusChange created = new OrderStatusChange(1L, 10L, OrderStatus.CREATED, 0L);
+        RecordingEmitter orderStream = (RecordingEmitter) orderStatusStreamService
+                .subscribeToOrder(1L, () -> Optional.of(created)).orElseThrow();
+        RecordingEmitter userStream = (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L);
+        RecordingEmitter otherOrderStream = (RecordingEmitter) orderStatusStreamService
+                .subscribeToOrder(2L, () -> Optional.of(new OrderStatusChange(2L, 20L, OrderStatus.CREATED, 0L))).orElseThrow();
+        RecordingEmitter otherUserStream = (RecordingEmitter) orderStatusStreamService.subscribeToUser(20L);
+
+        OrderStatusChange paid = new OrderStatusChange(1L, 10L, OrderStatus.PAID, 1L);
+        orderStatusStreamService.dispatch(paid);
+
+        await().atMost(AWAIT).until(() -> orderStream.statuses().size() == 2 && userStream.statuses().size() == 1);
+        assertEquals(List.of(created, paid), orderStream.statuses()); // in order, behind the current status
+        assertEquals(List.of(paid), userStream.statuses());
+        assertEquals(1, otherOrderStream.statuses().size());
+        assertTrue(otherUserStream.statuses().isEmpty());
+    }
+
+    @Test
+    void start_thenHeartbeatsSentToAllSubscribers() {
+        orderStatusStreamService = newService(2, Duration.ofMillis(50));
+        RecordingEmitter orderStream = (RecordingEmitter) orderStatusStreamService
+                .subscribeToOrder(1L, () -> Optional.of(new OrderStatusChange(1L, 10L, OrderStatus.CREATED, 0L))).orElseThrow();
+        RecordingEmitter userStream = (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L);
+
+        orderStatusStreamService.start();
+
+        await().atMost(AWAIT).until(() -> orderStream.heartbeats() > 0 && userStream.heartbeats() > 0);
+    }
+
+    @Test
+    void subscribe_whenStreamTimesOut_thenCompletedAndUnsubscribed() {
+        RecordingEmitter userStream = (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L);
+
+        userStream.timeoutCallback.run();
+
+        assertTrue(userStream.completed);
+        assertEquals(0, orderStatusStreamService.getSubscriberCount());
+        orderStatusStreamService.dispatch(new OrderStatusChange(1L, 10L, OrderStatus.PAID, 1L));
+        assertTrue(userStream.sent.isEmpty());
+    }
+
+    @Test
+    void dispatchAndHeartbeat_whenManySubscribers_thenEachGetsExactlyOneEvent() throws IOException {
+        orderStatusStreamService = newService(3, Duration.ofMillis(50));
+        List<RecordingEmitter> userStreams = List.of(
+                (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L),
+                (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L),
+                (RecordingEmitter) orderStatusStreamService.subscribeToUser(10L));
+        OrderStatusChange paid = new OrderStatusChange(1L, 10L, OrderStatus.PAID, 1L);
+
+        orderStatusStreamService.dispatch(paid);
+        await().atMost(AWAIT).until(() -> userStreams.stream().allMatch(stream -> stream.frames.size() == 1));
+        orderStatusStreamService.start();
+        await().atMost(AWAIT).until(() -> userStreams.stream().allMatch(stream -> stream.frames.size() >= 3));
+
+        String statusFrame = "event:status\nid:1\ndata:" + OBJECT_MAPPER.writeValueAsString(paid) + "\n\n";
+        for (RecordingEmitter userStream : userStreams) {
+            assertEquals(statusFrame, userStream.frames.get(0));
+            userStream.frames.subList(1, userStream.frames.size())
+                    .forEach(frame -> assertEquals(":heartbeat\n\n", frame));
+        }
+    }
+
+    private OrderStatusStreamServiceImpl newService(int maxSubscribers, Duration heartbeat) {
+        return new OrderStatusStreamServiceImpl(meterRegistry, maxSubscribers, Duration.ofMinutes(30), heartbeat) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                return new RecordingEmitter(timeoutMillis);
+            }
+        };
+    }
+
+    /**
+     * Keeps what would be written to the response and the callbacks the servlet container would invoke.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Object> sent = new CopyOnWriteArrayList<>();
+        /** Text of each write, with JSON data rendered as the converter would. */
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private Runnable timeoutCallback;
+        private Runnable completionCallback;
+        private volatile boolean completed;
+
+        private RecordingEmitter(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder frame = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                sent.add(data.getData());
+                frame.append(data.getData() instanceof String text ? text : OBJECT_MAPPER.writeValueAsString(data.getData()));
+            }
+            frames.add(frame.toString());
+        }
+
+        @Override
+        public synchronized void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            completionCallback.run();
+        }
+
+        private List<OrderStatusChange> statuses() {
+            return sent.stream()
+                    .filter(OrderStatusChange.class::isInstance)
+                    .map(OrderStatusChange.class::cast)
+                    .toList();
+        }
+
+        private long heartbeats() {
+            return sent.stream()
+                    .filter(data -> data instanceof String text && text.contains(":heartbeat"))
+                    .count();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mymicroservice.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mymicroservice.orderservice.kafka.OrderEventProducer;
+import com.mymicroservice.orderservice.kafka.OrderStatusChangePublisher;
+import com.mymicroservice.orderservice.model.OrderStatus;
+import com.mymicroservice.orderservice.model.OutboxEvent;
+import com.mymicroservice.orderservice.repository.OrderRepository;
+import com.mymicroservice.orderservice.repository.OutboxEventRepository;
+import com.mymicroservice.orderservice.service.impl.OutboxServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mymicroservices.common.events.OrderEventDto;
+import org.slf4j.MDC;
+import org.springframework.kafka.support.SendResult;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxServiceImplTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderEventProducer orderEventProducer;
+
+    @Mock
+    private OrderStatusChangePublisher orderStatusChangePublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxServiceImpl(outboxEventRepository, orderRepository, orderEventProducer,
+                orderStatusChangePublisher, objectMapper, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void enqueueCreateOrder_thenStoresSerializedEventWithRequestId() throws Exception {
+        when(orderEventProducer.getOrderTopic()).thenReturn("create-order");
+        MDC.put("requestId", "req-1");
+        MDC.put("serviceName", "orderservice");
+
+        outboxService.enqueueCreateOrder(event(7L));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(saved.capture());
+        assertEquals(7L, saved.getValue().getAggregateId());
+        assertEquals(OutboxEvent.CREATE_ORDER, saved.getValue().getEventType());
+        assertEquals("create-order", saved.getValue().getTopic());
+        assertEquals("req-1", saved.getValue().getRequestId());
+        assertEquals("orderservice", saved.getValue().getSourceService());
+        assertEquals("7", objectMapper.readValue(saved.getValue().getPayload(), OrderEventDto.class).getOrderId());
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void relayBatch_whenAllAcknowledged_thenMarksPublishedAndUpdatesOrdersInBulk() throws Exception {
+        when(outboxEventRepository.lockUnpublishedBatch(10)).thenReturn(List.of(outboxEvent(1L, 7L), outboxEvent(2L, 8L)));
+        // acks arrive asynchronously: both events must be in flight before the first one is awaited
+        when(orderEventProducer.sendCreateOrder(any())).thenAnswer(invocation -> delayedAck());
+
+        assertEquals(2, outboxService.relayBatch(10));
+
+        verify(orderEventProducer, times(2)).sendCreateOrder(any());
+        verify(outboxEventRepository, times(1)).markPublished(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(orderRepository, times(1)).transitionStatusByIdIn(Set.of(7L, 8L), OrderStatus.PROCESSING, Set.of(OrderStatus.CREATED, OrderStatus.FAILED));
+    }
+
+    @Test
+    void relayBatch_whenSendFails_thenEventAndLaterEventsOfSameOrderStayUnpublished() throws Exception {
+        when(outboxEventRepository.lockUnpublishedBatch(10))
+                .thenReturn(List.of(outboxEvent(1L, 7L), outboxEvent(2L, 8L), outboxEvent(3L, 7L)));
+        when(orderEventProducer.sendCreateOrder(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .thenReturn(ack())
+                .thenReturn(ack());
+
+        assertEquals(1, outboxService.relayBatch(10));
+
+        verify(outboxEventRepository, times(1)).markPublished(eq(List.of(2L)), any(LocalDateTime.class));
+        verify(orderRepository, times(1)).transitionStatusByIdIn(Set.of(8L), OrderStatus.PROCESSING, Set.of(OrderStatus.CREATED, OrderStatus.FAILED));
+    }
+
+    @Test
+    void relayBatch_whenOutboxEmpty_thenSendsNothing() {
+        when(outboxEventRepository.lockUnpublishedBatch(10)).thenReturn(List.of());
+
+        assertEquals(0, outboxService.relayBatch(10));
+
+        verifyNoInteractions(orderEventProducer, orderRepository);
+        verify(outboxEventRepository, never()).markPublished(anyCollection(), any());
+    }
+
+    private OrderEventDto event(Long orderId) {
+        OrderEventDto event = new OrderEventDto();
+        event.setOrderId(orderId.toString());
+        event.setUserId("1");
+        event.setPaymentAmount(BigDecimal.valueOf(100));
+        return event;
+    }
+
+    private OutboxEvent outboxEvent(Long id, Long orderId) throws Exception {
+        return OutboxEvent.builder()
+                .id(id)
+                .aggregateId(orderId)
+                .eventType(OutboxEvent.CREATE_ORDER)
+                .topic("create-order")
+                .payload(objectMapper.writeValueAsString(event(orderId)))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static CompletableFuture<SendResult<String, OrderEventDto>> ack() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<SendResult<String, OrderEventDto>> delayedAck() {
+        return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+    }
+}
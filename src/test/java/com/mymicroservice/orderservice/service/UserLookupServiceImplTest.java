@@ -0,0 +1,251 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.client.UserClient;
+import com.mymicroservice.orderservice.client.UserServiceGuard;
+import com.mymicroservice.orderservice.client.UserServiceHedging;
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.exception.UserServiceUnavailableException;
+import com.mymicroservice.orderservice.service.impl.UserLookupServiceImpl;
+import com.mymicroservice.orderservice.util.UserGenerator;
+import feign.FeignException;
+import feign.Request;
+import feign.RetryableException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserLookupServiceImplTest {
+
+    @Mock
+    private UserClient userClient;
+
+    @Mock
+    private UserProjectionService userProjectionService;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private UserServiceGuard userServiceGuard;
+    private UserServiceHedging userServiceHedging;
+    private UserLookupServiceImpl userLookupService;
+
+    private UserDto firstUser;
+    private UserDto secondUser;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        userServiceGuard = new UserServiceGuard(circuitBreakerRegistry, BulkheadRegistry.ofDefaults(), new SimpleMeterRegistry());
+        userServiceHedging = new UserServiceHedging(Runnable::run, new SimpleMeterRegistry(), false,
+                0.95, Duration.ofMillis(50), 0.05);
+        userLookupService = new UserLookupServiceImpl(userClient, userServiceGuard, userServiceHedging, userProjectionService, Runnable::run, new SimpleMeterRegistry(),
+                1, 100, Duration.ofMinutes(10), Duration.ofMinutes(5), Duration.ofHours(24), Duration.ofSeconds(5));
+
+        firstUser = UserGenerator.generateUserResponse();
+        secondUser = UserGenerator.generateUserResponse();
+        secondUser.setUserId(2L);
+        secondUser.setEmail("second@test.by");
+    }
+
+    @Test
+    void getUsersByIds_whenBatchEndpointAvailable_thenMakesSingleCall() {
+        when(userClient.getUsersByIds(Set.of(1L, 2L))).thenReturn(List.of(firstUser, secondUser));
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstUser, 2L, secondUser), result);
+        verify(userClient, times(1)).getUsersByIds(Set.of(1L, 2L));
+        verify(userClient, never()).getUserById(1L);
+        verify(userClient, never()).getUserById(2L);
+    }
+
+    @Test
+    void getUsersByIds_whenBatchEndpointMissing_thenFallsBackToSingleLookups() {
+        when(userClient.getUsersByIds(anySet())).thenThrow(notFound());
+        when(userClient.getUserById(1L)).thenReturn(firstUser);
+        when(userClient.getUserById(2L)).thenReturn(secondUser);
+        when(userClient.getUserById(3L)).thenReturn(thirdUser());
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+        userLookupService.getUsersByIds(Set.of(3L));
+
+        assertEquals(Map.of(1L, firstUser, 2L, secondUser), result);
+        // the batch endpoint is not probed again right after it was reported missing
+        verify(userClient, times(1)).getUsersByIds(anySet());
+        verify(userClient, times(1)).getUserById(1L);
+        verify(userClient, times(1)).getUserById(2L);
+        verify(userClient, times(1)).getUserById(3L);
+    }
+
+    @Test
+    void getUsersByIds_whenBatchEndpointNotImplemented_thenFallsBackToSingleLookups() {
+        when(userClient.getUsersByIds(anySet())).thenThrow(notImplemented());
+        when(userClient.getUserById(1L)).thenReturn(firstUser);
+        when(userClient.getUserById(2L)).thenReturn(secondUser);
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstUser, 2L, secondUser), result);
+        verify(userClient, times(1)).getUserById(1L);
+        verify(userClient, times(1)).getUserById(2L);
+    }
+
+    @Test
+    void getUsersByIds_whenUserMissingInBatch_thenLooksItUpSeparately() {
+        when(userClient.getUsersByIds(Set.of(1L, 2L))).thenReturn(List.of(firstUser));
+        when(userClient.getUserById(2L)).thenReturn(secondUser);
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(new HashMap<>(Map.of(1L, firstUser, 2L, secondUser)), result);
+        verify(userClient, never()).getUserById(1L);
+    }
+
+    @Test
+    void getUsersByIds_whenUserDoesNotExist_thenThrowsFeignException() {
+        when(userClient.getUsersByIds(Set.of(3L))).thenReturn(List.of());
+        when(userClient.getUserById(3L)).thenThrow(notFound());
+
+        assertThrows(FeignException.NotFound.class, () -> userLookupService.getUsersByIds(Set.of(3L)));
+    }
+
+    @Test
+    void getUsersByIds_whenEmpty_thenNoRemoteCalls() {
+        assertTrue(userLookupService.getUsersByIds(Set.of()).isEmpty());
+        verifyNoInteractions(userClient);
+    }
+
+    @Test
+    void getUsersByIds_whenUsersCached_thenOnlyMissingAreLoaded() {
+        when(userClient.getUserById(1L)).thenReturn(firstUser);
+        when(userClient.getUsersByIds(Set.of(2L))).thenReturn(List.of(secondUser));
+
+        userLookupService.getUserById(1L);
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstUser, 2L, secondUser), result);
+        verify(userClient, times(1)).getUserById(1L);
+        verify(userClient, times(1)).getUsersByIds(Set.of(2L));
+    }
+
+    @Test
+    void getUserById_whenCalledTwice_thenServedFromCache() {
+        when(userClient.getUserById(1L)).thenReturn(firstUser);
+
+        assertEquals(firstUser, userLookupService.getUserById(1L));
+        assertEquals(firstUser, userLookupService.getUserById(1L));
+
+        verify(userClient, times(1)).getUserById(1L);
+    }
+
+    @Test
+    void getUserByEmail_whenEmailMappingCached_thenUsesCachedUser() {
+        when(userClient.getUserByEmail(firstUser.getEmail())).thenReturn(firstUser);
+
+        assertEquals(firstUser, userLookupService.getUserByEmail(firstUser.getEmail()));
+        assertEquals(firstUser, userLookupService.getUserById(firstUser.getUserId()));
+        assertEquals(firstUser, userLookupService.getUserByEmail(firstUser.getEmail()));
+
+        verify(userClient, times(1)).getUserByEmail(firstUser.getEmail());
+        verify(userClient, never()).getUserById(firstUser.getUserId());
+    }
+
+    @Test
+    void getUserById_whenUserServiceTimesOut_thenServesLastKnownUser() {
+        UserLookupServiceImpl uncachedLookupService = new UserLookupServiceImpl(userClient, userServiceGuard, userServiceHedging, userProjectionService, Runnable::run,
+                new SimpleMeterRegistry(), 1, 100, Duration.ZERO, Duration.ofMinutes(5), Duration.ofHours(24), Duration.ofSeconds(5));
+        when(userClient.getUserById(1L)).thenReturn(firstUser).thenThrow(readTimeout());
+
+        assertEquals(firstUser, uncachedLookupService.getUserById(1L));
+        assertEquals(firstUser, uncachedLookupService.getUserById(1L));
+
+        verify(userClient, times(2)).getUserById(1L);
+    }
+
+    @Test
+    void getUserById_whenUserServiceTimesOutAndUserNeverSeen_thenThrowsUnavailable() {
+        when(userClient.getUserById(1L)).thenThrow(readTimeout());
+
+        assertThrows(UserServiceUnavailableException.class, () -> userLookupService.getUserById(1L));
+    }
+
+    @Test
+    void getUsersByIds_whenCircuitOpen_thenReturnsKnownUsersWithoutRemoteCalls() {
+        when(userClient.getUserById(1L)).thenReturn(firstUser);
+        userLookupService.getUserById(1L);
+        circuitBreakerRegistry.circuitBreaker(UserServiceGuard.INSTANCE).transitionToOpenState();
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstUser), result);
+        verify(userClient, never()).getUsersByIds(anySet());
+        verify(userClient, never()).getUserById(2L);
+    }
+
+    @Test
+    void getUsersByIds_whenProjectionHasUsers_thenOnlyMissingAreRequested() {
+        when(userProjectionService.findUsers(Set.of(1L, 2L))).thenReturn(Map.of(1L, firstUser));
+        when(userClient.getUsersByIds(Set.of(2L))).thenReturn(List.of(secondUser));
+
+        Map<Long, UserDto> result = userLookupService.getUsersByIds(Set.of(1L, 2L));
+
+        assertEquals(Map.of(1L, firstUser, 2L, secondUser), result);
+        verify(userClient, never()).getUserById(1L);
+    }
+
+    @Test
+    void getUserByEmail_whenUserInProjection_thenNoRemoteCall() {
+        when(userProjectionService.findUserByEmail(firstUser.getEmail())).thenReturn(Optional.of(firstUser));
+
+        assertEquals(firstUser, userLookupService.getUserByEmail(firstUser.getEmail()));
+
+        verifyNoInteractions(userClient);
+    }
+
+    private UserDto thirdUser() {
+        UserDto user = UserGenerator.generateUserResponse();
+        user.setUserId(3L);
+        user.setEmail("third@test.by");
+        return user;
+    }
+
+    private RetryableException readTimeout() {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/internal/users/1",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return new RetryableException(-1, "Read timed out", Request.HttpMethod.GET, (Long) null, request);
+    }
+
+    private FeignException.NotImplemented notImplemented() {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/internal/users/find-by-ids",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return new FeignException.NotImplemented("Not Implemented", request, null, Map.of());
+    }
+
+    private FeignException.NotFound notFound() {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/internal/users/find-by-ids",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return new FeignException.NotFound("Not Found", request, null, Map.of());
+    }
+}
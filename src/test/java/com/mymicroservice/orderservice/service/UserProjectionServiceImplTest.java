@@ -0,0 +1,126 @@
+package com.mymicroservice.orderservice.service;
+
+import com.mymicroservice.orderservice.dto.UserDto;
+import com.mymicroservice.orderservice.model.UserProjection;
+import com.mymicroservice.orderservice.repository.UserProjectionRepository;
+import com.mymicroservice.orderservice.service.impl.UserProjectionServiceImpl;
+import com.mymicroservice.orderservice.util.UserGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserProjectionServiceImplTest {
+
+    @Mock
+    private UserProjectionRepository userProjectionRepository;
+
+    private UserProjectionServiceImpl userProjectionService;
+
+    private UserDto user;
+
+    @BeforeEach
+    void setUp() {
+        userProjectionService = new UserProjectionServiceImpl(userProjectionRepository, new SimpleMeterRegistry(), true, 100);
+        user = UserGenerator.generateUserResponse();
+    }
+
+    @Test
+    void applyUserEvents_thenUpsertsUsersAndDeletesTombstones() {
+        Map<Long, UserDto> users = new HashMap<>();
+        users.put(user.getUserId(), user);
+        users.put(2L, null);
+
+        userProjectionService.applyUserEvents(users);
+
+        verify(userProjectionRepository, times(1)).upsertAll(List.of(user));
+        verify(userProjectionRepository, times(1)).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    @Test
+    void findUsers_whenNotCaughtUp_thenEmptyWithoutQuery() {
+        assertTrue(userProjectionService.findUsers(Set.of(user.getUserId())).isEmpty());
+        assertTrue(userProjectionService.findUser(user.getUserId()).isEmpty());
+
+        verifyNoInteractions(userProjectionRepository);
+    }
+
+    @Test
+    void isAvailable_whenOnlySomeAssignedPartitionsCaughtUp_thenNotAvailable() {
+        userProjectionService.partitionsAssigned(List.of(0, 1));
+
+        userProjectionService.recordLag(Map.of(0, 0L)); // the consumer of partition 1 didn't report yet
+
+        assertFalse(userProjectionService.isAvailable());
+        userProjectionService.recordLag(Map.of(1, 100L));
+        assertTrue(userProjectionService.isAvailable());
+    }
+
+    @Test
+    void isAvailable_whenPartitionFallsBehindAfterCatchingUp_thenNotAvailableUntilItCatchesUpAgain() {
+        userProjectionService.partitionsAssigned(List.of(0, 1));
+        userProjectionService.recordLag(Map.of(0, 0L, 1, 0L));
+
+        userProjectionService.recordLag(Map.of(1, 101L));
+        assertFalse(userProjectionService.isAvailable());
+        assertTrue(userProjectionService.findUser(user.getUserId()).isEmpty());
+
+        userProjectionService.recordLag(Map.of(1, 3L));
+        assertTrue(userProjectionService.isAvailable());
+    }
+
+    @Test
+    void isAvailable_whenPartitionsRevokedAndReassigned_thenNotAvailableUntilReported() {
+        userProjectionService.partitionsAssigned(List.of(0));
+        userProjectionService.recordLag(Map.of(0, 0L));
+
+        userProjectionService.partitionsRevoked(List.of(0));
+        assertFalse(userProjectionService.isAvailable());
+        userProjectionService.recordLag(Map.of(0, 0L)); // reported by the consumer that just lost it: ignored
+        assertFalse(userProjectionService.isAvailable());
+
+        userProjectionService.partitionsAssigned(List.of(0));
+        assertFalse(userProjectionService.isAvailable());
+    }
+
+    @Test
+    void findUsers_whenCaughtUp_thenReturnsUsersFromProjection() {
+        userProjectionService.partitionsAssigned(List.of(0));
+        userProjectionService.recordLag(Map.of(0, 0L));
+        when(userProjectionRepository.findAllByUserIdIn(List.of(user.getUserId(), 2L)))
+                .thenReturn(List.of(projection(user)));
+
+        Map<Long, UserDto> result = userProjectionService.findUsers(new LinkedHashSet<>(List.of(user.getUserId(), 2L)));
+
+        assertEquals(Map.of(user.getUserId(), user), result);
+    }
+
+    private static UserProjection projection(UserDto user) {
+        return UserProjection.builder()
+                .userId(user.getUserId())
+                .name(user.getName())
+                .surname(user.getSurname())
+                .birthDate(user.getBirthDate())
+                .email(user.getEmail())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
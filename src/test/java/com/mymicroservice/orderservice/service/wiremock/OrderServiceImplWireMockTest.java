@@ -9,7 +9,6 @@ import com.mymicroservice.orderservice.dto.OrderItemDto;
 import com.mymicroservice.orderservice.dto.OrderWithUserResponse;
 import com.mymicroservice.orderservice.dto.UserDto;
 import com.mymicroservice.orderservice.exception.OrderNotFoundException;
-import com.mymicroservice.orderservice.kafka.OrderEventProducer;
 import com.mymicroservice.orderservice.mapper.OrderMapper;
 import com.mymicroservice.orderservice.model.Item;
 import com.mymicroservice.orderservice.model.Order;
@@ -18,6 +17,7 @@ import com.mymicroservice.orderservice.model.OrderStatus;
 import com.mymicroservice.orderservice.repository.ItemRepository;
 import com.mymicroservice.orderservice.repository.OrderRepository;
 import com.mymicroservice.orderservice.service.OrderService;
+import com.mymicroservice.orderservice.service.OutboxService;
 import com.mymicroservice.orderservice.util.OrderGenerator;
 import com.mymicroservice.orderservice.util.UserGenerator;
 import org.junit.jupiter.api.AfterEach;
@@ -41,10 +41,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.times;
@@ -63,7 +66,7 @@ public class OrderServiceImplWireMockTest {
     private ItemRepository itemRepository;
 
     @MockBean
-    private OrderEventProducer orderEventProducer;
+    private OutboxService outboxService;
 
     @Autowired
     private OrderService orderService;
@@ -137,8 +140,7 @@ public class OrderServiceImplWireMockTest {
         assertEquals(testOrderWithUserResponse.getOrder(), result.getOrder());
         assertEquals(testOrderWithUserResponse.getUser(), result.getUser());
 
-        verify(orderEventProducer, times(1))
-                .sendCreateOrder(any(OrderEventDto.class), any(Runnable.class));
+        verify(outboxService, times(1)).enqueueCreateOrder(any(OrderEventDto.class));
 
         verifyFeignCall("/api/internal/users/1");
     }
@@ -156,6 +158,20 @@ public class OrderServiceImplWireMockTest {
         verifyFeignCall("/api/internal/users/1");
     }
 
+    @Test
+    void testGetOrderById_whenUserServiceHangs_thenReturnsOrderWithoutUserAfterReadTimeout() {
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/api/internal/users/1"))
+                .willReturn(WireMock.aResponse().withFixedDelay(5_000)));
+        when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.of(testOrder));
+
+        long start = System.nanoTime();
+        OrderWithUserResponse result = orderService.getOrderById(TEST_ORDER_ID);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        assertEquals(TEST_ORDER_ID, result.getOrder().getId());
+        assertNull(result.getUser());
+    }
+
     @Test
     void testGetOrderById_whenIdNotExist_thenNotFound() {
         when(orderRepository.findById(TEST_ORDER_ID)).thenReturn(Optional.empty());
@@ -191,13 +207,6 @@ public class OrderServiceImplWireMockTest {
         when(orderRepository.save(any(Order.class))).thenReturn(updatedOrder);
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
 
-        // Mock for orderEventProducer
-        org.mockito.Mockito.doAnswer(invocation -> {
-            Runnable callback = invocation.getArgument(1);
-            callback.run(); // Performing a callback to update the status
-            return null;
-        }).when(orderEventProducer).sendCreateOrder(any(OrderEventDto.class), any(Runnable.class));
-
         OrderDto updateDto = OrderMapper.INSTANCE.toDto(updatedOrder);
 
         OrderItemDto orderItemDto = new OrderItemDto();
@@ -205,16 +214,15 @@ public class OrderServiceImplWireMockTest {
         orderItemDto.setQuantity(10L);
         updateDto.setOrderItems(Set.of(orderItemDto));
 
-        OrderWithUserResponse result = orderService.updateOrder(TEST_ORDER_ID, updateDto);
+        OrderWithUserResponse result = orderService.updateOrder(TEST_ORDER_ID, updateDto, null);
 
         assertNotNull(result);
         assertEquals(updateDto.getUserId(), result.getOrder().getUserId());
 
-        verify(orderEventProducer, times(1))
-                .sendCreateOrder(any(OrderEventDto.class), any(Runnable.class));
+        verify(outboxService, times(1)).enqueueCreateOrder(any(OrderEventDto.class));
 
-        // check that save was called twice (main update + status update when callback)
-        verify(orderRepository, times(2)).save(any(Order.class));
+        // the status is moved to PROCESSING by the outbox relay, not by this call
+        verify(orderRepository, times(1)).save(any(Order.class));
 
         verifyFeignCall("/api/internal/users/1");
     }
@@ -0,0 +1,120 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScopedTasksTest {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final ScopedTaskFactory factory = new ScopedTaskFactory(new TaskExecutorAdapter(executorService), Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void join_whenAllSucceed_thenResultsAvailable() {
+        try (ScopedTasks scope = factory.open()) {
+            Supplier<String> first = scope.fork(() -> "first");
+            Supplier<Integer> second = scope.fork(() -> 2);
+
+            scope.join();
+
+            assertEquals("first", first.get());
+            assertEquals(2, second.get());
+        }
+    }
+
+    @Test
+    void join_whenForkedAfterFirstCompleted_thenWaitsForLaterSubtask() {
+        // the first subtask runs on the caller and has completed before the second one is forked
+        AtomicBoolean firstTask = new AtomicBoolean(true);
+        TaskExecutor executor = task -> {
+            if (firstTask.getAndSet(false)) {
+                task.run();
+            } else {
+                executorService.execute(task);
+            }
+        };
+        ScopedTaskFactory mixed = new ScopedTaskFactory(new TaskExecutorAdapter(executor), Duration.ofSeconds(5));
+
+        try (ScopedTasks scope = mixed.open()) {
+            Supplier<String> first = scope.fork(() -> "first");
+            Supplier<String> second = scope.fork(() -> {
+                sleep(100);
+                return "second";
+            });
+
+            scope.join();
+
+            assertEquals("first", first.get());
+            assertEquals("second", second.get());
+        }
+    }
+
+    @Test
+    void join_whenOneFails_thenRethrowsAndCancelsOthers() throws InterruptedException {
+        RuntimeException failure = new IllegalArgumentException("user not found");
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (ScopedTasks scope = factory.open()) {
+            scope.fork(() -> sleepUntilInterrupted(interrupted));
+            scope.fork(() -> {
+                throw failure;
+            });
+
+            RuntimeException thrown = assertThrows(RuntimeException.class, scope::join);
+            assertSame(failure, thrown);
+        }
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void join_whenDeadlinePassed_thenThrowsAndCancels() throws InterruptedException {
+        ScopedTaskFactory shortDeadline = new ScopedTaskFactory(new TaskExecutorAdapter(executorService), Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        try (ScopedTasks scope = shortDeadline.open()) {
+            Supplier<String> slow = scope.fork(() -> sleepUntilInterrupted(interrupted));
+
+            assertThrows(DeadlineExceededException.class, scope::join);
+            assertThrows(IllegalStateException.class, slow::get);
+        }
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(10_000);
+            return "slow";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new IllegalStateException(e);
+        }
+    }
+}
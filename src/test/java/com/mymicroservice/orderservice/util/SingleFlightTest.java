@@ -0,0 +1,152 @@
+package com.mymicroservice.orderservice.util;
+
+import com.mymicroservice.orderservice.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void execute_whenCalledConcurrently_thenFollowersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        Future<String> leader = executorService.submit(() -> singleFlight.execute(1L, () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "user-1";
+        }));
+        awaitCondition(() -> singleFlight.getInFlight() == 1);
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            followers.add(executorService.submit(() -> singleFlight.execute(1L, () -> {
+                calls.incrementAndGet();
+                return "duplicate";
+            })));
+        }
+        awaitCondition(() -> singleFlight.getCoalescedCalls() == 3);
+        release.countDown();
+
+        assertEquals("user-1", leader.get(1, TimeUnit.SECONDS));
+        for (Future<String> follower : followers) {
+            assertEquals("user-1", follower.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void execute_whenLeaderFails_thenFollowersGetSameFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RuntimeException failure = new IllegalStateException("userservice is unavailable");
+
+        Future<String> leader = executorService.submit(() -> singleFlight.execute(1L, () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitCondition(() -> singleFlight.getInFlight() == 1);
+        Future<String> follower = executorService.submit(() -> singleFlight.execute(1L, () -> "duplicate"));
+        awaitCondition(() -> singleFlight.getCoalescedCalls() == 1);
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, leader::get).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, follower::get).getCause());
+    }
+
+    @Test
+    void execute_whenCallInFlightTooSlow_thenFollowerStopsWaiting() throws Exception {
+        SingleFlight<Long, String> shortWait = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+
+        executorService.submit(() -> shortWait.execute(1L, () -> {
+            await(release);
+            return "user-1";
+        }));
+        awaitCondition(() -> shortWait.getInFlight() == 1);
+
+        assertThrows(DeadlineExceededException.class, () -> shortWait.execute(1L, () -> "duplicate"));
+        assertEquals(1, shortWait.getTimedOutCalls());
+        release.countDown();
+    }
+
+    @Test
+    void executeAll_whenKeyInFlight_thenCallsOnlyForOtherKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executorService.submit(() -> singleFlight.execute(1L, () -> {
+            await(release);
+            return "user-1";
+        }));
+        awaitCondition(() -> singleFlight.getInFlight() == 1);
+
+        List<Set<Long>> bulkCalls = new ArrayList<>();
+        Future<Map<Long, String>> bulk = executorService.submit(() -> singleFlight.executeAll(Set.of(1L, 2L), keys -> {
+            bulkCalls.add(keys);
+            return Map.of(2L, "user-2");
+        }));
+        awaitCondition(() -> singleFlight.getCoalescedCalls() == 1);
+        release.countDown();
+
+        assertEquals(Map.of(1L, "user-1", 2L, "user-2"), bulk.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of(Set.of(2L)), bulkCalls);
+    }
+
+    @Test
+    void execute_whenBulkCallInFlightMissesKey_thenFollowerMakesOwnCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Map<Long, String>> bulk = executorService.submit(() -> singleFlight.executeAll(Set.of(1L, 2L), keys -> {
+            await(release);
+            return Map.of(2L, "user-2");
+        }));
+        awaitCondition(() -> singleFlight.getInFlight() == 2);
+        Future<String> follower = executorService.submit(() -> singleFlight.execute(1L, () -> "user-1"));
+        awaitCondition(() -> singleFlight.getCoalescedCalls() == 1);
+        release.countDown();
+
+        assertEquals(Map.of(2L, "user-2"), bulk.get(1, TimeUnit.SECONDS));
+        assertEquals("user-1", follower.get(1, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(1);
+        }
+    }
+}